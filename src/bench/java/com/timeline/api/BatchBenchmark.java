@@ -0,0 +1,53 @@
+package com.timeline.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.timeline.api.BatchHtmlDiff.RevisionPair;
+
+// diffs per second of a history page worth of revision pairs, sequential build() calls against the batch api
+public class BatchBenchmark {
+    public static void main(String[] args) {
+        List<RevisionPair> pairs = new ArrayList<>();
+        String revision = BenchmarkDocuments.article(11, 5_000);
+        for (int i = 0; i < 200; i++) {
+            String next = BenchmarkDocuments.revise(revision, i, 20);
+            pairs.add(new RevisionPair(revision, next));
+            revision = next;
+        }
+        List<String> expected = sequential(pairs);
+
+        for (int round = 0; round < 3; round++) {
+            long nanos = System.nanoTime();
+            sequential(pairs);
+            report("sequential", pairs.size(), System.nanoTime() - nanos);
+
+            for (int concurrency = 1; concurrency <= Runtime.getRuntime().availableProcessors() * 2; concurrency *= 2) {
+                try (BatchHtmlDiff batch = new BatchHtmlDiff(concurrency, 256L << 20)) {
+                    nanos = System.nanoTime();
+                    List<String> results = batch.diff(pairs);
+                    report("batch concurrency=" + concurrency, pairs.size(), System.nanoTime() - nanos);
+                    if (!expected.equals(results)) System.out.println("batch results differ from sequential build()");
+
+                    AtomicInteger completed = new AtomicInteger();
+                    nanos = System.nanoTime();
+                    batch.diff(pairs, (index, diffHtml) -> completed.incrementAndGet()).join();
+                    report("callback concurrency=" + concurrency, completed.get(), System.nanoTime() - nanos);
+                }
+            }
+        }
+    }
+
+    private static List<String> sequential(List<RevisionPair> pairs) {
+        List<String> results = new ArrayList<>();
+        for (RevisionPair pair : pairs) {
+            results.add(new CustomHtmlDiff(pair.getOldHtml(), pair.getNewHtml()).build());
+        }
+        return results;
+    }
+
+    private static void report(String name, int diffs, long nanos) {
+        System.out.printf("%-24s %d diffs in %.2f ms, %.1f diffs/s%n", name, diffs, nanos / 1e6, diffs / (nanos / 1e9));
+    }
+}
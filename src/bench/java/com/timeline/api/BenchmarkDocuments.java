@@ -0,0 +1,63 @@
+package com.timeline.api;
+
+import java.util.Random;
+
+// synthetic article revisions for the benchmarks
+public class BenchmarkDocuments {
+    private static final String[] words = {
+            "the", "timeline", "of", "a", "history", "page", "revision", "article", "and", "in", "to", "was",
+            "city", "river", "war", "king", "people", "year", "first", "new", "built", "north", "south", "by"
+    };
+
+    // roughly tokens / 20 paragraphs of words and spaces with some markup
+    public static String article(long seed, int tokens) {
+        Random random = new Random(seed);
+        StringBuilder html = new StringBuilder();
+        int count = 0;
+        while (count < tokens) {
+            if (random.nextInt(10) == 0) {
+                html.append("<img src=\"https://example.com/").append(random.nextInt(1000)).append(".png\">");
+                count++;
+            }
+            html.append("<p>");
+            for (int i = 0; i < 10; i++) {
+                if (random.nextInt(15) == 0) {
+                    html.append("<strong>").append(word(random)).append("</strong> ");
+                    count += 4;
+                } else {
+                    html.append(word(random)).append(' ');
+                    count += 2;
+                }
+            }
+            html.append("</p>");
+            count += 2;
+        }
+        return html.toString();
+    }
+
+    // applies scattered word level insertions, deletions and replacements
+    public static String revise(String html, long seed, int edits) {
+        Random random = new Random(seed);
+        StringBuilder result = new StringBuilder(html);
+        for (int i = 0; i < edits; i++) {
+            int position = result.indexOf(" ", random.nextInt(result.length()));
+            if (position < 0) continue;
+            switch (random.nextInt(3)) {
+                case 0:
+                    result.insert(position, " " + word(random));
+                    break;
+                case 1:
+                    int end = result.indexOf(" ", position + 1);
+                    if (end > 0 && result.lastIndexOf("<", end) < position) result.delete(position, end);
+                    break;
+                default:
+                    result.insert(position + 1, word(random) + "ed ");
+            }
+        }
+        return result.toString();
+    }
+
+    private static String word(Random random) {
+        return words[random.nextInt(words.length)];
+    }
+}
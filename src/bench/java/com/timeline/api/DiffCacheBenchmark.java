@@ -0,0 +1,43 @@
+package com.timeline.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// a timeline ui reopening recent revision diffs far more often than old ones: diffs per second and hit ratio
+// of the cache at budgets holding all, some and few of the diffs, against building every diff
+public class DiffCacheBenchmark {
+    public static void main(String[] args) {
+        List<String> revisions = new ArrayList<>();
+        revisions.add(BenchmarkDocuments.article(13, 5_000));
+        for (int i = 1; i < 100; i++) revisions.add(BenchmarkDocuments.revise(revisions.get(i - 1), i, 10));
+
+        int requests = 2_000;
+        int[] pairs = new int[requests];
+        Random random = new Random(13);
+        for (int i = 0; i < requests; i++) {
+            // newest revisions first, each older one half as likely as the one after it, roughly
+            int age = Math.min((int) (-Math.log(1 - random.nextDouble()) * 8), revisions.size() - 2);
+            pairs[i] = revisions.size() - 2 - age;
+        }
+
+        long nanos = 0;
+        for (int round = 0; round < 2; round++) {
+            nanos = System.nanoTime();
+            for (int i = 0; i < requests / 10; i++) {
+                new CustomHtmlDiff(revisions.get(pairs[i]), revisions.get(pairs[i] + 1)).build();
+            }
+            nanos = (System.nanoTime() - nanos) * 10;
+        }
+        System.out.printf("%-22s %.1f diffs/s%n", "no cache", requests / (nanos / 1e9));
+
+        for (long maxBytes : new long[]{64L << 20, 2L << 20, 512L << 10}) {
+            DiffCache cache = new DiffCache(maxBytes);
+            nanos = System.nanoTime();
+            for (int pair : pairs) cache.diff(revisions.get(pair), revisions.get(pair + 1));
+            nanos = System.nanoTime() - nanos;
+            System.out.printf("%-22s %.1f diffs/s, hit ratio %.2f, %s%n", "cache " + (maxBytes >> 10) + " KB",
+                    requests / (nanos / 1e9), (double) cache.getHits() / requests, cache);
+        }
+    }
+}
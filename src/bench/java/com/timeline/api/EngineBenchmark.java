@@ -0,0 +1,72 @@
+package com.timeline.api;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.BiFunction;
+
+// head to head time and bytes allocated per diff for every engine on the same revisions
+public class EngineBenchmark {
+    public static void main(String[] args) {
+        int[] sizes = {2_000, 10_000, 50_000};
+
+        for (int size : sizes) {
+            String html1 = BenchmarkDocuments.article(size, size);
+            String html2 = BenchmarkDocuments.revise(html1, size, size / 100);
+
+            run("custom", size, html1, html2, (a, b) -> new CustomHtmlDiff(a, b).build());
+            // the trace keeps one v array per edit and needs gigabytes at the largest size
+            if (size <= 10_000) run("myers trace", size, html1, html2, (a, b) -> myers(a, b, false, false));
+            run("myers linear", size, html1, html2, (a, b) -> myers(a, b, true, false));
+            run("histogram", size, html1, html2, (a, b) -> myers(a, b, false, true));
+            run("lcs", size, html1, html2, EngineBenchmark::lcs);
+            run("adaptive", size, html1, html2, EngineBenchmark::adaptive);
+        }
+
+        // what the adaptive engine picks as the share of edited words grows
+        AdaptiveDiffEngine adaptive = DiffEngine.adaptive();
+        adaptive.setSelectionListener(selection -> System.out.println("  " + selection));
+        for (int size : sizes) {
+            String html1 = BenchmarkDocuments.article(size, size);
+            for (int edits : new int[]{size / 1000, size / 50, size / 5, size}) {
+                System.out.printf("tokens=%d edits=%d%n", size, edits);
+                adaptive.diff(DiffEngine.tokenize(html1), DiffEngine.tokenize(BenchmarkDocuments.revise(html1, size, edits)));
+            }
+            System.out.printf("tokens=%d rewritten%n", size);
+            adaptive.diff(DiffEngine.tokenize(html1), DiffEngine.tokenize(BenchmarkDocuments.article(size + 1, size)));
+        }
+    }
+
+    private static void run(String engine, int size, String html1, String html2, BiFunction<String, String, String> diff) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int iterations = Math.max(3, 100_000 / size);
+        for (int i = 0; i < iterations; i++) diff.apply(html1, html2);
+
+        long bytes = threads.getCurrentThreadAllocatedBytes();
+        long nanos = System.nanoTime();
+        int output = 0;
+        for (int i = 0; i < iterations; i++) output = diff.apply(html1, html2).length();
+        nanos = System.nanoTime() - nanos;
+        bytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+
+        System.out.printf("%-12s tokens=%d edits=%d: %.2f ms/diff, %d KB allocated/diff, %d chars of output%n",
+                engine, size, size / 100, nanos / 1e6 / iterations, bytes / iterations / 1024, output);
+    }
+
+    private static String myers(String html1, String html2, boolean linearSpace, boolean histogram) {
+        MyersOptions options = new MyersOptions();
+        options.setLinearSpace(linearSpace);
+        options.setHistogram(histogram);
+        return MyersHtmlDiff.diff(html1, html2, options);
+    }
+
+    // the operation count stands in for output, the engines do not render html
+    private static String adaptive(String html1, String html2) {
+        return "#".repeat(DiffEngine.adaptive().diff(DiffEngine.tokenize(html1), DiffEngine.tokenize(html2)).size());
+    }
+
+    private static String lcs(String html1, String html2) {
+        List<String> tokens1 = DynamicHtmlDiff.tokenize(html1);
+        List<String> tokens2 = DynamicHtmlDiff.tokenize(html2);
+        return String.join("", DynamicHtmlDiff.generateDiff(tokens1, tokens2, DynamicHtmlDiff.computeLCS(tokens1, tokens2)));
+    }
+}
@@ -0,0 +1,47 @@
+package com.timeline.api;
+
+import java.util.Random;
+
+// a draft of a large page edited a keystroke at a time: the time of IncrementalHtmlDiff.edit and of rendering
+// after it, against a full CustomHtmlDiff rebuild, which every tenth edit is also checked against
+public class IncrementalBenchmark {
+    public static void main(String[] args) {
+        for (int tokens : new int[] {20_000, 100_000, 400_000}) {
+            String published = BenchmarkDocuments.article(23, tokens);
+            String draft = BenchmarkDocuments.revise(published, 5, 20);
+            IncrementalHtmlDiff diff = new IncrementalHtmlDiff(published, draft);
+            Random random = new Random(tokens);
+
+            int edits = 200;
+            long editNanos = 0;
+            long renderNanos = 0;
+            long fullNanos = 0;
+            long searched = 0;
+            int fullBuilds = 0;
+            int position = diff.getDraft().indexOf(' ', random.nextInt(diff.getDraft().length()));
+            for (int i = 0; i < edits; i++) {
+                // a word typed at one place, then a jump somewhere else; every eighth key is a backspace
+                if (i % 20 == 0) position = Math.max(0, diff.getDraft().indexOf(' ', random.nextInt(diff.getDraft().length())));
+                long nanos = System.nanoTime();
+                if (i % 8 == 7 && position > 0) diff.edit(--position, 1, "");
+                else diff.edit(position++, 0, String.valueOf((char) ('a' + random.nextInt(26))));
+                editNanos += System.nanoTime() - nanos;
+                searched += diff.getSearchedTokens();
+
+                nanos = System.nanoTime();
+                String result = diff.build();
+                renderNanos += System.nanoTime() - nanos;
+
+                if (i % 10 == 0) {
+                    nanos = System.nanoTime();
+                    String expected = new CustomHtmlDiff(published, diff.getDraft()).build();
+                    fullNanos += System.nanoTime() - nanos;
+                    fullBuilds++;
+                    if (!expected.equals(result)) System.out.println("incremental diff differs from a full build");
+                }
+            }
+            System.out.printf("%7d tokens: edit %.3f ms, render %.2f ms, full build %.2f ms, %d tokens searched per edit%n",
+                    tokens, editNanos / 1e6 / edits, renderNanos / 1e6 / edits, fullNanos / 1e6 / fullBuilds, searched / edits);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.timeline.api;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// time and heap bytes allocated to tokenize a page of tens of megabytes from a String, a Reader and a mapped file
+public class LargePageBenchmark {
+    public static void main(String[] args) throws IOException {
+        String html = BenchmarkDocuments.article(9, 4_000_000);
+        Path path = Files.createTempFile("large-page", ".html");
+        try {
+            Files.writeString(path, html, StandardCharsets.UTF_8);
+            System.out.printf("page: %d MB%n", Files.size(path) >> 20);
+
+            for (int i = 0; i < 3; i++) {
+                report("string", () -> new HtmlTokenizer().tokenize(Files.readString(path)));
+                report("reader", () -> {
+                    try (Reader reader = Files.newBufferedReader(path)) {
+                        return new HtmlTokenizer().tokenize(reader);
+                    }
+                });
+                report("mapped file", () -> new HtmlTokenizer().tokenize(path));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static void report(String name, Tokenize tokenize) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long bytes = threads.getCurrentThreadAllocatedBytes();
+        long nanos = System.nanoTime();
+        int tokens = tokenize.run().size();
+        nanos = System.nanoTime() - nanos;
+        bytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+        System.out.printf("%-12s %.2f ms, %d MB allocated on the heap, %d tokens%n", name, nanos / 1e6, bytes >> 20, tokens);
+    }
+
+    private interface Tokenize {
+        TokenList run() throws IOException;
+    }
+}
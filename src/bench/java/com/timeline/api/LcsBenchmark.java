@@ -0,0 +1,30 @@
+package com.timeline.api;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+// time and bytes allocated per DynamicHtmlDiff.computeLCS(), next to what the int[m + 1][n + 1] matrix needed
+public class LcsBenchmark {
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int[] sizes = {2_000, 10_000, 20_000, 50_000};
+
+        for (int size : sizes) {
+            List<String> tokens1 = DynamicHtmlDiff.tokenize(BenchmarkDocuments.article(size, size));
+            List<String> tokens2 = DynamicHtmlDiff.tokenize(BenchmarkDocuments.revise(BenchmarkDocuments.article(size, size), size, size / 50));
+            int iterations = Math.max(3, 40_000 / size);
+
+            DynamicHtmlDiff.computeLCS(tokens1, tokens2);
+
+            long bytes = threads.getCurrentThreadAllocatedBytes();
+            long nanos = System.nanoTime();
+            for (int i = 0; i < iterations; i++) DynamicHtmlDiff.computeLCS(tokens1, tokens2);
+            nanos = System.nanoTime() - nanos;
+            bytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+
+            long matrixBytes = 4L * (tokens1.size() + 1) * (tokens2.size() + 1);
+            System.out.printf("tokens=%d x %d: %.2f ms/lcs, %d KB allocated/lcs, matrix %d KB%n",
+                    tokens1.size(), tokens2.size(), nanos / 1e6 / iterations, bytes / iterations / 1024, matrixBytes / 1024);
+        }
+    }
+}
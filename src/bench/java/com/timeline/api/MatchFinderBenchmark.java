@@ -0,0 +1,37 @@
+package com.timeline.api;
+
+import java.lang.management.ManagementFactory;
+
+// bytes allocated and time per CustomHtmlDiff.build() for documents with scattered edits, per match strategy
+public class MatchFinderBenchmark {
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int[] sizes = {2_000, 10_000, 50_000};
+
+        for (CustomHtmlDiff.MatchStrategy strategy : CustomHtmlDiff.MatchStrategy.values()) {
+            for (int size : sizes) {
+                String html1 = BenchmarkDocuments.article(size, size);
+                String html2 = BenchmarkDocuments.revise(html1, size, size / 100);
+                int iterations = Math.max(3, 200_000 / size);
+
+                for (int i = 0; i < iterations; i++) build(html1, html2, strategy);
+
+                long bytes = threads.getCurrentThreadAllocatedBytes();
+                long nanos = System.nanoTime();
+                for (int i = 0; i < iterations; i++) build(html1, html2, strategy);
+                nanos = System.nanoTime() - nanos;
+                bytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+
+                System.out.printf("%s tokens=%d edits=%d: %.2f ms/diff, %d KB allocated/diff, %.1f bytes/input char%n",
+                        strategy, size, size / 100, nanos / 1e6 / iterations, bytes / iterations / 1024,
+                        (double) bytes / iterations / (html1.length() + html2.length()));
+            }
+        }
+    }
+
+    private static String build(String html1, String html2, CustomHtmlDiff.MatchStrategy strategy) {
+        CustomHtmlDiff diff = new CustomHtmlDiff(html1, html2);
+        diff.setMatchStrategy(strategy);
+        return diff.build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.timeline.api;
+
+import java.lang.management.ManagementFactory;
+
+// bytes allocated and time per MyersHtmlDiff.diff() with the full trace and with the linear space variant,
+// block level alignment on long pages with a few edited paragraphs, then a completely rewritten page with
+// and without a cost limit
+public class MyersBenchmark {
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int[] sizes = {2_000, 10_000, 25_000, 50_000};
+
+        for (boolean linearSpace : new boolean[]{false, true}) {
+            MyersOptions options = new MyersOptions();
+            options.setLinearSpace(linearSpace);
+            for (int size : sizes) {
+                String html1 = BenchmarkDocuments.article(size, size);
+                String html2 = BenchmarkDocuments.revise(html1, size, size / 50);
+                // the trace keeps one v array of 2(n + m) ints per edit, the largest size needs gigabytes
+                if (!linearSpace && size > 25_000) {
+                    System.out.printf("trace tokens=%d edits=%d: skipped%n", size, size / 50);
+                    continue;
+                }
+                int iterations = Math.max(3, 100_000 / size);
+
+                MyersHtmlDiff.diff(html1, html2, options);
+
+                long bytes = threads.getCurrentThreadAllocatedBytes();
+                long nanos = System.nanoTime();
+                for (int i = 0; i < iterations; i++) MyersHtmlDiff.diff(html1, html2, options);
+                nanos = System.nanoTime() - nanos;
+                bytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+
+                System.out.printf("%s tokens=%d edits=%d: %.2f ms/diff, %d KB allocated/diff%n",
+                        linearSpace ? "linear" : "trace", size, size / 50, nanos / 1e6 / iterations, bytes / iterations / 1024);
+            }
+        }
+
+        for (int size : new int[]{20_000, 100_000, 200_000}) {
+            String html1 = BenchmarkDocuments.article(size, size);
+            String html2 = BenchmarkDocuments.revise(html1, size, 20);
+            for (boolean blockLevel : new boolean[]{false, true}) {
+                MyersOptions options = new MyersOptions();
+                options.setBlockLevel(blockLevel);
+                MyersHtmlDiff.diff(html1, html2, options);
+
+                long bytes = threads.getCurrentThreadAllocatedBytes();
+                long nanos = System.nanoTime();
+                MyersHtmlDiff.diff(html1, html2, options);
+                nanos = System.nanoTime() - nanos;
+                bytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+
+                System.out.printf("%s tokens=%d edits=20: %.2f ms/diff, %d KB allocated/diff%n",
+                        blockLevel ? "trace, block level" : "trace, token level", size, nanos / 1e6, bytes / 1024);
+            }
+        }
+
+        String html1 = BenchmarkDocuments.article(1, 20_000);
+        String html2 = BenchmarkDocuments.article(2, 20_000);
+        rewrite("linear, no limit", html1, html2, true, 0, 0);
+        rewrite("linear, 50 ms", html1, html2, true, 0, 50);
+        rewrite("linear, max d 1000", html1, html2, true, 1_000, 0);
+        rewrite("trace, max d 1000", html1, html2, false, 1_000, 0);
+        rewrite("trace, 50 ms", html1, html2, false, 0, 50);
+    }
+
+    private static void rewrite(String name, String html1, String html2, boolean linearSpace, int maxEditDistance, long timeBudgetMillis) {
+        MyersOptions options = new MyersOptions();
+        options.setLinearSpace(linearSpace);
+        options.setMaxEditDistance(maxEditDistance);
+        options.setTimeBudgetMillis(timeBudgetMillis);
+        MyersHtmlDiff.diff(html1, html2, options);
+
+        long nanos = System.nanoTime();
+        MyersHtmlDiff.diff(html1, html2, options);
+        nanos = System.nanoTime() - nanos;
+
+        // the script again on its own, only to read whether a limit was hit
+        MyersScript script = new MyersScript(options);
+        script.run(MyersHtmlDiff.tokenize(html1), MyersHtmlDiff.tokenize(html2));
+        System.out.printf("rewrite tokens=20000 %s: %.2f ms, fallback=%b%n", name, nanos / 1e6, script.fellBack());
+    }
+}
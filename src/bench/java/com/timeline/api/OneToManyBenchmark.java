@@ -0,0 +1,42 @@
+package com.timeline.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// one canonical page against dozens of proposed revisions: a CustomHtmlDiff per candidate, the prepared base
+// one candidate after another, and the prepared base through diffAll on the common pool
+public class OneToManyBenchmark {
+    public static void main(String[] args) {
+        for (int tokens : new int[] {20_000, 100_000}) {
+            String base = BenchmarkDocuments.article(29, tokens);
+            List<String> candidates = new ArrayList<>();
+            for (int i = 0; i < 20; i++) candidates.add(BenchmarkDocuments.revise(base, i, 20));
+            System.out.printf("base of %d tokens, %d candidates%n", tokens, candidates.size());
+
+            for (int round = 0; round < 3; round++) {
+                long nanos = System.nanoTime();
+                List<String> expected = new ArrayList<>();
+                for (String candidate : candidates) expected.add(new CustomHtmlDiff(base, candidate).build());
+                report("pairs", candidates.size(), System.nanoTime() - nanos);
+
+                nanos = System.nanoTime();
+                OneToManyHtmlDiff diff = new OneToManyHtmlDiff(base);
+                long prepared = System.nanoTime() - nanos;
+                List<String> results = new ArrayList<>();
+                for (String candidate : candidates) results.add(diff.diff(candidate));
+                report("prepared base", candidates.size(), System.nanoTime() - nanos);
+                System.out.printf("  of which preparing the base %.2f ms%n", prepared / 1e6);
+                if (!expected.equals(results)) System.out.println("prepared base diffs differ from pair diffs");
+
+                nanos = System.nanoTime();
+                results = new OneToManyHtmlDiff(base).diffAll(candidates);
+                report("diffAll", candidates.size(), System.nanoTime() - nanos);
+                if (!expected.equals(results)) System.out.println("diffAll diffs differ from pair diffs");
+            }
+        }
+    }
+
+    private static void report(String name, int diffs, long nanos) {
+        System.out.printf("%-14s %d diffs in %.2f ms, %.2f ms/diff%n", name, diffs, nanos / 1e6, nanos / 1e6 / diffs);
+    }
+}
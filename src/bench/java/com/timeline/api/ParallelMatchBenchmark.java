@@ -0,0 +1,40 @@
+package com.timeline.api;
+
+import java.util.concurrent.ForkJoinPool;
+
+// time per CustomHtmlDiff.build() of one large diff, sequential and with match discovery on pools of growing size
+public class ParallelMatchBenchmark {
+    public static void main(String[] args) {
+        String html1 = BenchmarkDocuments.article(3, 100_000);
+        String html2 = BenchmarkDocuments.revise(html1, 4, 1_000);
+        int iterations = 5;
+
+        String expected = build(html1, html2, null);
+        report("sequential", html1, html2, null, iterations);
+
+        for (int parallelism = 2; parallelism <= Runtime.getRuntime().availableProcessors() * 2; parallelism *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            if (!expected.equals(build(html1, html2, pool))) {
+                System.out.printf("parallelism=%d: output differs from the sequential diff%n", parallelism);
+            }
+            report("parallelism=" + parallelism, html1, html2, pool, iterations);
+            pool.shutdown();
+        }
+    }
+
+    private static void report(String name, String html1, String html2, ForkJoinPool pool, int iterations) {
+        for (int i = 0; i < iterations; i++) build(html1, html2, pool);
+
+        long nanos = System.nanoTime();
+        for (int i = 0; i < iterations; i++) build(html1, html2, pool);
+        nanos = System.nanoTime() - nanos;
+
+        System.out.printf("%s: %.2f ms/diff%n", name, nanos / 1e6 / iterations);
+    }
+
+    private static String build(String html1, String html2, ForkJoinPool pool) {
+        CustomHtmlDiff diff = new CustomHtmlDiff(html1, html2);
+        diff.setMatchPool(pool);
+        return diff.build();
+    }
+}
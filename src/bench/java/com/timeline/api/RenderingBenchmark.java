@@ -0,0 +1,41 @@
+package com.timeline.api;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.timeline.api.CustomHtmlDiff.Operation;
+
+// time per rendering of CustomHtmlDiff's operations as the page and its number of edits grow together, with
+// tokenizing and match discovery done once up front. each operation only walks its own range, so the time
+// per token must stay flat instead of growing with operations x tokens
+public class RenderingBenchmark {
+    public static void main(String[] args) throws IOException {
+        int[] sizes = {10_000, 40_000, 160_000};
+        double first = 0;
+        double last = 0;
+
+        for (int size : sizes) {
+            String html1 = BenchmarkDocuments.article(size, size);
+            String html2 = BenchmarkDocuments.revise(html1, size, size / 50);
+            TokenList tokens1 = new HtmlTokenizer().tokenize(html1);
+            TokenList tokens2 = new HtmlTokenizer().tokenize(html2);
+            List<Operation> operations = new CustomHtmlDiff(html1, html2).operations();
+
+            int iterations = Math.max(3, 400_000 / size);
+            for (int i = 0; i < iterations; i++) CustomHtmlDiff.render(tokens1, tokens2, operations, new StringBuilder());
+
+            long nanos = System.nanoTime();
+            for (int i = 0; i < iterations; i++) CustomHtmlDiff.render(tokens1, tokens2, operations, new StringBuilder());
+            nanos = (System.nanoTime() - nanos) / iterations;
+
+            last = nanos / 1e3 / size;
+            if (first == 0) first = last;
+            System.out.printf("tokens=%d edits=%d operations=%d: %.2f ms/render, %.3f us per token%n",
+                    size, size / 50, operations.size(), nanos / 1e6, last);
+        }
+
+        double growth = last / first;
+        System.out.printf("time per token grew %.2fx over a %dx larger page%s%n",
+                growth, sizes[sizes.length - 1] / sizes[0], growth > 4 ? ", rendering is not linear" : "");
+    }
+}
@@ -0,0 +1,36 @@
+package com.timeline.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// a history page diffing a chain of revisions A -> B -> C ..., from Strings and from cached tokenized handles
+public class RevisionChainBenchmark {
+    public static void main(String[] args) {
+        List<String> revisions = new ArrayList<>();
+        revisions.add(BenchmarkDocuments.article(17, 20_000));
+        for (int i = 1; i < 50; i++) revisions.add(BenchmarkDocuments.revise(revisions.get(i - 1), i, 20));
+
+        for (int round = 0; round < 3; round++) {
+            long nanos = System.nanoTime();
+            List<String> expected = new ArrayList<>();
+            for (int i = 1; i < revisions.size(); i++) {
+                expected.add(new CustomHtmlDiff(revisions.get(i - 1), revisions.get(i)).build());
+            }
+            report("strings", revisions.size() - 1, System.nanoTime() - nanos);
+
+            TokenizedDocumentCache cache = new TokenizedDocumentCache(256L << 20);
+            nanos = System.nanoTime();
+            List<String> results = new ArrayList<>();
+            for (int i = 1; i < revisions.size(); i++) {
+                results.add(new CustomHtmlDiff(cache.get(revisions.get(i - 1)), cache.get(revisions.get(i))).build());
+            }
+            report("tokenized handles", revisions.size() - 1, System.nanoTime() - nanos);
+            if (!expected.equals(results)) System.out.println("handle diffs differ from string diffs");
+            System.out.println("  " + cache);
+        }
+    }
+
+    private static void report(String name, int diffs, long nanos) {
+        System.out.printf("%-18s %d diffs in %.2f ms, %.2f ms/diff%n", name, diffs, nanos / 1e6, nanos / 1e6 / diffs);
+    }
+}
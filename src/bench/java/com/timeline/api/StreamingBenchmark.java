@@ -0,0 +1,62 @@
+package com.timeline.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+// bytes allocated per diff of a large page, rendered into a String and streamed into a gzip Writer
+public class StreamingBenchmark {
+    public static void main(String[] args) throws IOException {
+        String html1 = BenchmarkDocuments.article(5, 100_000);
+        String html2 = BenchmarkDocuments.revise(html1, 6, 1_000);
+        System.out.printf("input: %d + %d chars%n", html1.length(), html2.length());
+
+        String expected = new CustomHtmlDiff(html1, html2).build();
+        StringBuilder streamed = new StringBuilder();
+        Writer writer = new Writer() {
+            @Override
+            public void write(char[] chars, int offset, int length) {
+                streamed.append(chars, offset, length);
+            }
+            @Override
+            public void flush() {}
+            @Override
+            public void close() {}
+        };
+        new CustomHtmlDiff(html1, html2).build(writer);
+        if (!expected.contentEquals(streamed)) System.out.println("streamed output differs from build()");
+
+        for (int i = 0; i < 3; i++) {
+            report("string", () -> new CustomHtmlDiff(html1, html2).build().length());
+            report("gzip writer", () -> {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (Writer out = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+                    new CustomHtmlDiff(html1, html2).build(out);
+                }
+                return bytes.size();
+            });
+            report("null writer", () -> {
+                new CustomHtmlDiff(html1, html2).build(Writer.nullWriter());
+                return 0;
+            });
+        }
+    }
+
+    private static void report(String name, Diff diff) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long bytes = threads.getCurrentThreadAllocatedBytes();
+        long nanos = System.nanoTime();
+        int output = diff.run();
+        nanos = System.nanoTime() - nanos;
+        bytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+        System.out.printf("%-12s %.2f ms, %d KB allocated, %d output%n", name, nanos / 1e6, bytes / 1024, output);
+    }
+
+    private interface Diff {
+        int run() throws IOException;
+    }
+}
@@ -0,0 +1,42 @@
+package com.timeline.api;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// all adjacent diffs of a revision history: pair by pair from Strings, through the timeline in parallel, and
+// the first page of ten diffs through the lazy iterator
+public class TimelineBenchmark {
+    public static void main(String[] args) {
+        List<String> revisions = new ArrayList<>();
+        revisions.add(BenchmarkDocuments.article(19, 20_000));
+        for (int i = 1; i < 60; i++) revisions.add(BenchmarkDocuments.revise(revisions.get(i - 1), i, 20));
+
+        for (int round = 0; round < 3; round++) {
+            long nanos = System.nanoTime();
+            List<String> expected = new ArrayList<>();
+            for (int i = 1; i < revisions.size(); i++) {
+                expected.add(new CustomHtmlDiff(revisions.get(i - 1), revisions.get(i)).build());
+            }
+            report("pairs", expected.size(), System.nanoTime() - nanos);
+
+            nanos = System.nanoTime();
+            List<String> results = new RevisionTimeline(revisions).diffAll();
+            report("timeline diffAll", results.size(), System.nanoTime() - nanos);
+            if (!expected.equals(results)) System.out.println("timeline diffs differ from pair diffs");
+
+            nanos = System.nanoTime();
+            Iterator<String> page = new RevisionTimeline(revisions).iterator(20);
+            int shown = 0;
+            while (shown < 10 && page.hasNext()) {
+                if (!page.next().equals(expected.get(20 + shown))) System.out.println("iterator diff differs");
+                shown++;
+            }
+            report("timeline page", shown, System.nanoTime() - nanos);
+        }
+    }
+
+    private static void report(String name, int diffs, long nanos) {
+        System.out.printf("%-18s %d diffs in %.2f ms%n", name, diffs, nanos / 1e6);
+    }
+}
@@ -0,0 +1,222 @@
+package com.timeline.api;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// picks an engine per call from the token counts, an estimated edit ratio and a memory budget, and reports
+// every decision, once the engine has run, to the selection listener so the thresholds can be tuned against
+// real revisions
+public class AdaptiveDiffEngine implements DiffEngine {
+    // tokens per window of the edit ratio estimate
+    private static final int ShingleLength = 8;
+
+    private final ScriptDiffEngine myers = (ScriptDiffEngine) DiffEngine.myers();
+    private final ScriptDiffEngine histogram = (ScriptDiffEngine) DiffEngine.histogram();
+    private final ScriptDiffEngine lcs = (ScriptDiffEngine) DiffEngine.lcs();
+    private final ScriptDiffEngine blockHash = (ScriptDiffEngine) DiffEngine.blockHash();
+
+    // inputs up to this many tokens in total always go to Myers
+    private int smallInputTokens = 2_000;
+    // estimated edit ratios at or below this go to the block hash engine
+    private double fewEditsRatio = 0.02;
+    // estimated edit ratios at or above this go to the bounded Myers
+    private double rewriteRatio = 0.3;
+    private int maxEditDistance = 2_000;
+    private long timeBudgetMillis = 200;
+    // in between, lcs runs while its dp has at most this many cells and fits the memory budget,
+    // the histogram engine otherwise
+    private long lcsMaxCells = 16_000_000;
+    private long memoryBudget = 64L << 20;
+    private Consumer<EngineSelection> selectionListener = selection -> {};
+
+    @Override
+    public Result run(List<String> tokens1, List<String> tokens2) {
+        TokenDictionary dictionary = new TokenDictionary();
+        int[] ids1 = dictionary.intern(tokens1);
+        int[] ids2 = dictionary.intern(tokens2);
+        EngineSelection selection = select(ids1, ids2);
+
+        ScriptDiffEngine engine;
+        switch (selection.getEngine()) {
+            case MYERS:
+                engine = myers;
+                break;
+            case BLOCK_HASH:
+                engine = blockHash;
+                break;
+            case BOUNDED:
+                engine = (ScriptDiffEngine) DiffEngine.bounded(maxEditDistance, timeBudgetMillis);
+                break;
+            case LCS:
+                engine = lcs;
+                break;
+            default:
+                engine = histogram;
+        }
+        Result result = engine.run(tokens1, tokens2, ids1, ids2);
+        selection.fellBack = result.isFellBack();
+        selectionListener.accept(selection);
+        return result;
+    }
+
+    @Override
+    public EngineKind getKind() {
+        return EngineKind.ADAPTIVE;
+    }
+
+    private EngineSelection select(int[] ids1, int[] ids2) {
+        int n = ids1.length;
+        int m = ids2.length;
+        double editRatio = estimateEditRatio(ids1, ids2);
+
+        if (n + m <= smallInputTokens) {
+            return new EngineSelection(EngineKind.MYERS, n, m, editRatio, "at most " + smallInputTokens + " tokens");
+        }
+        if (editRatio <= fewEditsRatio) {
+            return new EngineSelection(EngineKind.BLOCK_HASH, n, m, editRatio, "edit ratio at most " + fewEditsRatio);
+        }
+        if (editRatio >= rewriteRatio) {
+            return new EngineSelection(EngineKind.BOUNDED, n, m, editRatio, "edit ratio at least " + rewriteRatio);
+        }
+        if ((long) n * m > lcsMaxCells) {
+            return new EngineSelection(EngineKind.HISTOGRAM, n, m, editRatio, "more than " + lcsMaxCells + " lcs cells");
+        }
+        long lcsBytes = BitParallelLcs.estimateBytes(n, m);
+        if (lcsBytes > memoryBudget) {
+            return new EngineSelection(EngineKind.HISTOGRAM, n, m, editRatio, "lcs needs " + lcsBytes + " bytes, over the memory budget");
+        }
+        return new EngineSelection(EngineKind.LCS, n, m, editRatio, "lcs needs " + lcsBytes + " bytes");
+    }
+
+    // share of edited tokens, from the share of ShingleLength token windows without a counterpart in the other
+    // list: a window survives when none of its tokens is edited, so with edits spread evenly at rate p a share
+    // (1 - p) ^ ShingleLength survives. single token counts would miss rewrites reusing a small vocabulary
+    static double estimateEditRatio(int[] ids1, int[] ids2) {
+        int length = Math.min(ShingleLength, Math.min(ids1.length, ids2.length));
+        if (length == 0) return ids1.length + ids2.length == 0 ? 0 : 1;
+        long[] shingles1 = shingles(ids1, length);
+        long[] shingles2 = shingles(ids2, length);
+        Arrays.sort(shingles1);
+        Arrays.sort(shingles2);
+        int shared = 0;
+        for (int i = 0, j = 0; i < shingles1.length && j < shingles2.length; ) {
+            if (shingles1[i] == shingles2[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (shingles1[i] < shingles2[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        double surviving = 2.0 * shared / (shingles1.length + shingles2.length);
+        return 1 - Math.pow(surviving, 1.0 / length);
+    }
+
+    // rolling polynomial hash of every window of length ids
+    private static long[] shingles(int[] ids, int length) {
+        final long base = 0x9E3779B97F4A7C15L;
+        long power = 1;
+        for (int i = 0; i < length; i++) power *= base;
+        long[] result = new long[ids.length - length + 1];
+        long hash = 0;
+        for (int i = 0; i < ids.length; i++) {
+            hash = hash * base + ids[i] + 1;
+            if (i >= length) hash -= (ids[i - length] + 1) * power;
+            if (i >= length - 1) result[i - length + 1] = hash;
+        }
+        return result;
+    }
+
+    public int getSmallInputTokens() {
+        return smallInputTokens;
+    }
+    public void setSmallInputTokens(int smallInputTokens) {
+        this.smallInputTokens = smallInputTokens;
+    }
+    public double getFewEditsRatio() {
+        return fewEditsRatio;
+    }
+    public void setFewEditsRatio(double fewEditsRatio) {
+        this.fewEditsRatio = fewEditsRatio;
+    }
+    public double getRewriteRatio() {
+        return rewriteRatio;
+    }
+    public void setRewriteRatio(double rewriteRatio) {
+        this.rewriteRatio = rewriteRatio;
+    }
+    public int getMaxEditDistance() {
+        return maxEditDistance;
+    }
+    public void setMaxEditDistance(int maxEditDistance) {
+        this.maxEditDistance = maxEditDistance;
+    }
+    public long getTimeBudgetMillis() {
+        return timeBudgetMillis;
+    }
+    public void setTimeBudgetMillis(long timeBudgetMillis) {
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+    public long getLcsMaxCells() {
+        return lcsMaxCells;
+    }
+    public void setLcsMaxCells(long lcsMaxCells) {
+        this.lcsMaxCells = lcsMaxCells;
+    }
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+    public void setSelectionListener(Consumer<EngineSelection> selectionListener) {
+        this.selectionListener = selectionListener;
+    }
+
+    // one decision of the adaptive engine
+    public static class EngineSelection {
+        private final EngineKind engine;
+        private final int tokensInOld;
+        private final int tokensInNew;
+        private final double estimatedEditRatio;
+        private final String reason;
+        private boolean fellBack;
+
+        EngineSelection(EngineKind engine, int tokensInOld, int tokensInNew, double estimatedEditRatio, String reason) {
+            this.engine = engine;
+            this.tokensInOld = tokensInOld;
+            this.tokensInNew = tokensInNew;
+            this.estimatedEditRatio = estimatedEditRatio;
+            this.reason = reason;
+        }
+
+        public EngineKind getEngine() {
+            return engine;
+        }
+        public int getTokensInOld() {
+            return tokensInOld;
+        }
+        public int getTokensInNew() {
+            return tokensInNew;
+        }
+        public double getEstimatedEditRatio() {
+            return estimatedEditRatio;
+        }
+        public String getReason() {
+            return reason;
+        }
+        // true when the selected engine hit its limit, so the operations are not a minimal edit script
+        public boolean isFellBack() {
+            return fellBack;
+        }
+
+        @Override
+        public String toString() {
+            return "EngineSelection{engine=" + engine + ", tokensInOld=" + tokensInOld + ", tokensInNew=" + tokensInNew +
+                    ", estimatedEditRatio=" + String.format("%.4f", estimatedEditRatio) + ", reason=" + reason + ", fellBack=" + fellBack + "}";
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.timeline.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
+
+// diffs many revision pairs concurrently. a pair is only handed to the executor once a concurrency permit and
+// its estimated memory are free, so the submitting thread is held back instead of the heap filling up
+public class BatchHtmlDiff implements AutoCloseable {
+    // rough peak heap per input char of one CustomHtmlDiff: tokens, ids, index and the rendered diff
+    private static final int EstimatedBytesPerChar = 24;
+
+    private final int concurrency;
+    private final long memoryBudget;
+    private final Semaphore running;
+    // one permit per KB of the memory budget
+    private final Semaphore memory;
+    private final Executor executor;
+    // the pool created when no executor is given, shut down by close
+    private final ExecutorService ownExecutor;
+
+    public BatchHtmlDiff() {
+        this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    public BatchHtmlDiff(int concurrency, long memoryBudget) {
+        this(concurrency, memoryBudget, null);
+    }
+
+    // executor runs the diffs, any executor works, a virtual thread per task executor included;
+    // null uses a fixed pool of concurrency threads
+    public BatchHtmlDiff(int concurrency, long memoryBudget, Executor executor) {
+        if (concurrency < 1) throw new IllegalArgumentException("concurrency must be at least 1");
+        this.concurrency = concurrency;
+        this.memoryBudget = memoryBudget;
+        this.running = new Semaphore(concurrency);
+        this.memory = new Semaphore(kilobytes(memoryBudget));
+        this.ownExecutor = executor == null ? Executors.newFixedThreadPool(concurrency, daemonThreads()) : null;
+        this.executor = executor != null ? executor : ownExecutor;
+    }
+
+    // the diffs in the order of pairs; the first failure is rethrown wrapped in a CompletionException
+    public List<String> diff(List<RevisionPair> pairs) {
+        List<CompletableFuture<String>> futures = submit(pairs, (index, diffHtml) -> {});
+        List<String> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<String> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    // onResult is called with the index of the pair and its diff as each one completes, on the executor's thread.
+    // returns once every pair is admitted; the future completes when all are done
+    public CompletableFuture<Void> diff(List<RevisionPair> pairs, BiConsumer<Integer, String> onResult) {
+        return CompletableFuture.allOf(submit(pairs, onResult).toArray(new CompletableFuture<?>[0]));
+    }
+
+    private List<CompletableFuture<String>> submit(List<RevisionPair> pairs, BiConsumer<Integer, String> onResult) {
+        List<CompletableFuture<String>> futures = new ArrayList<>(pairs.size());
+        for (int i = 0; i < pairs.size(); i++) {
+            RevisionPair pair = pairs.get(i);
+            // a pair larger than the whole budget runs alone instead of never
+            int reserved = Math.min(kilobytes(estimateBytes(pair)), kilobytes(memoryBudget));
+            running.acquireUninterruptibly();
+            memory.acquireUninterruptibly(reserved);
+
+            int index = i;
+            CompletableFuture<String> future = new CompletableFuture<>();
+            try {
+                executor.execute(() -> {
+                    try {
+                        String diffHtml = new CustomHtmlDiff(pair.getOldHtml(), pair.getNewHtml()).build();
+                        onResult.accept(index, diffHtml);
+                        future.complete(diffHtml);
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    } finally {
+                        memory.release(reserved);
+                        running.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                memory.release(reserved);
+                running.release();
+                throw e;
+            }
+            futures.add(future);
+        }
+        return futures;
+    }
+
+    static long estimateBytes(RevisionPair pair) {
+        return (long) (pair.getOldHtml().length() + pair.getNewHtml().length()) * EstimatedBytesPerChar;
+    }
+
+    private static int kilobytes(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, bytes >> 10));
+    }
+
+    private static ThreadFactory daemonThreads() {
+        return task -> {
+            Thread thread = new Thread(task, "batch-html-diff");
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    // shuts down the pool created by this batch, an executor passed in is left to its owner
+    @Override
+    public void close() {
+        if (ownExecutor != null) ownExecutor.shutdown();
+    }
+
+    public static class RevisionPair {
+        private final String oldHtml;
+        private final String newHtml;
+
+        public RevisionPair(String oldHtml, String newHtml) {
+            this.oldHtml = Objects.requireNonNull(oldHtml, "oldHtml");
+            this.newHtml = Objects.requireNonNull(newHtml, "newHtml");
+        }
+
+        public String getOldHtml() {
+            return oldHtml;
+        }
+        public String getNewHtml() {
+            return newHtml;
+        }
+    }
+}
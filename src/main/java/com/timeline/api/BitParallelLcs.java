@@ -0,0 +1,167 @@
+package com.timeline.api;
+
+import java.util.Arrays;
+
+// longest common subsequence over token ids, 64 columns of the dp row per long. bit j of row i is 0 exactly
+// when L[i][j + 1] = L[i][j] + 1, so a row holds everything the traceback asks about it. only every
+// stride-th row is kept; the traceback recomputes one stride of rows at a time from the checkpoint below it
+class BitParallelLcs {
+    private static final int DenseOccurrences = 64;
+
+    private final int[] ids1;
+    private final int[] ids2;
+    private final int words;
+    // positions of each id in ids2, used to set the match mask of a row
+    private final int[] postingStarts;
+    private final int[] postings;
+    private final long[] mask;
+    // frequent ids keep their own mask instead of setting one bit per occurrence on every row
+    private final long[][] denseMasks;
+    // the common subsequence as ascending index pairs, filled by traceback
+    private int[] matchesInOld;
+    private int[] matchesInNew;
+
+    private BitParallelLcs(int[] ids1, int[] ids2) {
+        this.ids1 = ids1;
+        this.ids2 = ids2;
+        this.words = (ids2.length + 63) >>> 6;
+        this.mask = new long[words];
+
+        int maxId = -1;
+        for (int id : ids1) maxId = Math.max(maxId, id);
+        for (int id : ids2) maxId = Math.max(maxId, id);
+        postingStarts = new int[maxId + 2];
+        for (int id : ids2) postingStarts[id + 1]++;
+        for (int id = 0; id <= maxId; id++) postingStarts[id + 1] += postingStarts[id];
+        postings = new int[ids2.length];
+        int[] fill = Arrays.copyOf(postingStarts, maxId + 1);
+        for (int j = 0; j < ids2.length; j++) postings[fill[ids2[j]]++] = j;
+        denseMasks = new long[maxId + 1][];
+    }
+
+    // indices into ids1 of the common subsequence, ascending, picked like the classic L[i][j] traceback
+    static int[] lcs(int[] ids1, int[] ids2) {
+        BitParallelLcs lcs = new BitParallelLcs(ids1, ids2);
+        lcs.traceback();
+        return lcs.matchesInOld;
+    }
+
+    // one MyersDiff step per token, equal steps on the common subsequence
+    static byte[] script(int[] ids1, int[] ids2) {
+        BitParallelLcs lcs = new BitParallelLcs(ids1, ids2);
+        lcs.traceback();
+        byte[] script = new byte[ids1.length + ids2.length - lcs.matchesInOld.length];
+        int length = 0;
+        int x = 0;
+        int y = 0;
+        for (int k = 0; k < lcs.matchesInOld.length; k++) {
+            while (x < lcs.matchesInOld[k]) {
+                script[length++] = MyersDiff.DELETE;
+                x++;
+            }
+            while (y < lcs.matchesInNew[k]) {
+                script[length++] = MyersDiff.INSERT;
+                y++;
+            }
+            script[length++] = MyersDiff.EQUAL;
+            x++;
+            y++;
+        }
+        while (x++ < ids1.length) script[length++] = MyersDiff.DELETE;
+        while (y++ < ids2.length) script[length++] = MyersDiff.INSERT;
+        return script;
+    }
+
+    // upper bound of the bytes lcs and script keep alive: the checkpoint rows, one stride of recomputed rows
+    // and the dense masks of ids occurring at least DenseOccurrences times in the new range
+    static long estimateBytes(int oldLength, int newLength) {
+        long rowBytes = 8L * ((newLength + 63) >>> 6);
+        int stride = Math.max(1, (int) Math.ceil(Math.sqrt(oldLength)));
+        long rows = oldLength / stride + 1 + stride + newLength / DenseOccurrences;
+        return rows * rowBytes + 8L * (oldLength + newLength);
+    }
+
+    private void traceback() {
+        int m = ids1.length;
+        int stride = Math.max(1, (int) Math.ceil(Math.sqrt(m)));
+        long[][] checkpoints = new long[m / stride + 1][];
+        long[] row = new long[words];
+        Arrays.fill(row, -1L);
+        checkpoints[0] = row.clone();
+        for (int i = 1; i <= m; i++) {
+            advance(row, ids1[i - 1]);
+            if (i % stride == 0) checkpoints[i / stride] = row.clone();
+        }
+
+        int[] resultInOld = new int[Math.min(m, ids2.length)];
+        int[] resultInNew = new int[resultInOld.length];
+        int length = 0;
+        long[][] block = new long[stride][];
+        int blockStart = -1;
+        int i = m;
+        int j = ids2.length;
+        while (i > 0 && j > 0) {
+            if (ids1[i - 1] == ids2[j - 1]) {
+                resultInOld[length] = i - 1;
+                resultInNew[length++] = j - 1;
+                i--;
+                j--;
+                continue;
+            }
+
+            // rows (blockStart, blockStart + stride] are rebuilt from the checkpoint at blockStart
+            if (blockStart < 0 || i <= blockStart) {
+                blockStart = (i - 1) / stride * stride;
+                long[] current = checkpoints[blockStart / stride].clone();
+                for (int r = 0; r < stride && blockStart + r < m; r++) {
+                    advance(current, ids1[blockStart + r]);
+                    if (block[r] == null) block[r] = new long[words];
+                    System.arraycopy(current, 0, block[r], 0, words);
+                }
+            }
+
+            long[] rowI = block[i - blockStart - 1];
+            if ((rowI[(j - 1) >>> 6] & (1L << (j - 1))) == 0) {
+                // L[i][j] came from the left, so L[i - 1][j] is the larger neighbour
+                i--;
+            } else {
+                j--;
+            }
+        }
+
+        matchesInOld = new int[length];
+        matchesInNew = new int[length];
+        for (int k = 0; k < length; k++) {
+            matchesInOld[k] = resultInOld[length - 1 - k];
+            matchesInNew[k] = resultInNew[length - 1 - k];
+        }
+    }
+
+    // row' = (row + u) | (row & ~match) with u = row & match, the addition carrying across words
+    private void advance(long[] row, int id) {
+        int from = postingStarts[id];
+        int to = postingStarts[id + 1];
+        long[] mask = this.mask;
+        if (to - from >= DenseOccurrences) {
+            if (denseMasks[id] == null) {
+                denseMasks[id] = new long[words];
+                for (int p = from; p < to; p++) denseMasks[id][postings[p] >>> 6] |= 1L << postings[p];
+            }
+            mask = denseMasks[id];
+            from = to;
+        } else {
+            for (int p = from; p < to; p++) mask[postings[p] >>> 6] |= 1L << postings[p];
+        }
+
+        long carry = 0;
+        for (int w = 0; w < words; w++) {
+            long v = row[w];
+            long u = v & mask[w];
+            long sum = v + u + carry;
+            carry = ((v & u) | ((v | u) & ~sum)) >>> 63;
+            row[w] = sum | (v & ~mask[w]);
+        }
+
+        for (int p = from; p < to; p++) mask[postings[p] >>> 6] = 0;
+    }
+}
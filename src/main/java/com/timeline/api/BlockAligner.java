@@ -0,0 +1,183 @@
+package com.timeline.api;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// splits token lists into block level elements, hashes every block and aligns the two block sequences, so
+// a token diff only has to run over the blocks that changed between them
+class BlockAligner {
+    private static final Set<String> blockTagNames = Set.of("p", "li", "h1", "h2", "h3", "h4", "h5", "h6", "tr");
+
+    private final Map<BlockKey, Integer> blockIds = new HashMap<>();
+
+    // equal runs and changed runs of tokens, in document order. ids1 and ids2 interned by one dictionary
+    static List<Hunk> align(List<String> tokens1, List<String> tokens2, int[] ids1, int[] ids2) {
+        BlockAligner aligner = new BlockAligner();
+        int[] bounds1 = split(tokens1);
+        int[] bounds2 = split(tokens2);
+        byte[] script = MyersDiff.diff(aligner.blockIds(ids1, bounds1), aligner.blockIds(ids2, bounds2));
+
+        List<Hunk> hunks = new ArrayList<>();
+        int block1 = 0;
+        int block2 = 0;
+        for (int step = 0; step < script.length; ) {
+            int start1 = block1;
+            int start2 = block2;
+            boolean equal = script[step] == MyersDiff.EQUAL;
+            // a hunk is a run of equal blocks or a run of deleted and inserted blocks
+            while (step < script.length && (script[step] == MyersDiff.EQUAL) == equal) {
+                if (script[step] != MyersDiff.INSERT) block1++;
+                if (script[step] != MyersDiff.DELETE) block2++;
+                step++;
+            }
+            hunks.add(new Hunk(bounds1[start1], bounds1[block1], bounds2[start2], bounds2[block2], !equal));
+        }
+        return hunks;
+    }
+
+    // one MyersDiff step per token: equal blocks become equal steps directly, a run of only deleted or only
+    // inserted blocks needs no diff, and hunkDiff runs over the ids of every other changed run
+    static byte[] script(List<String> tokens1, List<String> tokens2, int[] ids1, int[] ids2, HunkDiff hunkDiff) {
+        byte[] script = new byte[ids1.length + ids2.length];
+        int length = 0;
+        for (Hunk hunk : align(tokens1, tokens2, ids1, ids2)) {
+            int changed1 = hunk.getEndInOld() - hunk.getStartInOld();
+            int changed2 = hunk.getEndInNew() - hunk.getStartInNew();
+            if (!hunk.isChanged()) {
+                Arrays.fill(script, length, length += changed1, MyersDiff.EQUAL);
+            } else if (changed1 == 0 || changed2 == 0) {
+                Arrays.fill(script, length, length += changed1, MyersDiff.DELETE);
+                Arrays.fill(script, length, length += changed2, MyersDiff.INSERT);
+            } else {
+                byte[] steps = hunkDiff.diff(Arrays.copyOfRange(ids1, hunk.getStartInOld(), hunk.getEndInOld()),
+                        Arrays.copyOfRange(ids2, hunk.getStartInNew(), hunk.getEndInNew()));
+                System.arraycopy(steps, 0, script, length, steps.length);
+                length += steps.length;
+            }
+        }
+        return Arrays.copyOf(script, length);
+    }
+
+    // block starts followed by the end of the last block. a block is a p, li, h1-h6 or tr element up to its
+    // closing tag, an img, or a run of tokens between those
+    static int[] split(List<String> tokens) {
+        int[] ends = blockEnds(tokens);
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        int i = 0;
+        while (i < tokens.size()) {
+            int end = ends[i];
+            if (end < 0) {
+                // loose tokens up to the next block element
+                end = i + 1;
+                while (end < tokens.size() && ends[end] < 0) end++;
+            }
+            bounds.add(end);
+            i = end;
+        }
+
+        int[] result = new int[bounds.size()];
+        for (int b = 0; b < result.length; b++) result[b] = bounds.get(b);
+        return result;
+    }
+
+    // end of the block element opened at each token, -1 where no block starts. closing tags are paired with
+    // the innermost open element of the same name; an unclosed element is only its opening tag
+    private static int[] blockEnds(List<String> tokens) {
+        int[] ends = new int[tokens.size()];
+        Map<String, Deque<Integer>> open = new HashMap<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            ends[i] = -1;
+            String token = tokens.get(i);
+            if (!token.startsWith("<") || token.endsWith("/>")) continue;
+
+            String name = CustomHtmlDiff.getTagName(token);
+            if (token.startsWith("</")) {
+                Deque<Integer> starts = open.get(name);
+                if (starts != null && !starts.isEmpty()) ends[starts.pop()] = i + 1;
+            } else if (name.equals("img")) {
+                ends[i] = i + 1;
+            } else if (blockTagNames.contains(name)) {
+                ends[i] = i + 1;
+                open.computeIfAbsent(name, key -> new ArrayDeque<>()).push(i);
+            }
+        }
+        return ends;
+    }
+
+    private int[] blockIds(int[] ids, int[] bounds) {
+        int[] result = new int[bounds.length - 1];
+        for (int b = 0; b < result.length; b++) {
+            BlockKey key = new BlockKey(ids, bounds[b], bounds[b + 1]);
+            Integer id = blockIds.get(key);
+            if (id == null) {
+                id = blockIds.size();
+                blockIds.put(key, id);
+            }
+            result[b] = id;
+        }
+        return result;
+    }
+
+    // the token diff of one changed run
+    interface HunkDiff {
+        byte[] diff(int[] ids1, int[] ids2);
+    }
+
+    public static class Hunk {
+        private final int startInOld;
+        private final int endInOld;
+        private final int startInNew;
+        private final int endInNew;
+        private final boolean changed;
+
+        Hunk(int startInOld, int endInOld, int startInNew, int endInNew, boolean changed) {
+            this.startInOld = startInOld;
+            this.endInOld = endInOld;
+            this.startInNew = startInNew;
+            this.endInNew = endInNew;
+            this.changed = changed;
+        }
+
+        public int getStartInOld() {return startInOld;}
+        public int getEndInOld() {return endInOld;}
+        public int getStartInNew() {return startInNew;}
+        public int getEndInNew() {return endInNew;}
+        public boolean isChanged() {return changed;}
+    }
+
+    // token ids of one block, compared by content
+    private static class BlockKey {
+        private final int[] ids;
+        private final int start;
+        private final int end;
+        private final int hash;
+
+        BlockKey(int[] ids, int start, int end) {
+            this.ids = ids;
+            this.start = start;
+            this.end = end;
+            int h = 1;
+            for (int i = start; i < end; i++) h = 31 * h + ids[i];
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof BlockKey)) return false;
+            BlockKey key = (BlockKey) other;
+            return hash == key.hash && Arrays.equals(ids, start, end, key.ids, key.start, key.end);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.timeline.api;
+
+import java.util.List;
+
+// CustomHtmlDiff's matcher behind DiffEngine. it works on TokenList spans, so the tokens are laid out one after
+// another as one span each
+class CustomDiffEngine implements DiffEngine {
+    // operations() never compares whole pages, so the handles need no content hash
+    private static final byte[] NoHash = new byte[0];
+
+    @Override
+    public Result run(List<String> tokens1, List<String> tokens2) {
+        TokenDictionary dictionary = new TokenDictionary();
+        CustomHtmlDiff diff = new CustomHtmlDiff(document(tokens1, dictionary), document(tokens2, dictionary));
+        return new Result(diff.operations(), false);
+    }
+
+    @Override
+    public EngineKind getKind() {
+        return EngineKind.CUSTOM;
+    }
+
+    private static TokenizedDocument document(List<String> tokens, TokenDictionary dictionary) {
+        return new TokenizedDocument(new HtmlTokenizer().spans(tokens), dictionary, NoHash);
+    }
+}
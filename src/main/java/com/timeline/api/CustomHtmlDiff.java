@@ -1,18 +1,40 @@
 package com.timeline.api;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.IntStream;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import com.timeline.api.TokenList.TokenKind;
 
 public class CustomHtmlDiff {
     private String html1;
     private String html2;
-    private String[] tokens1;
-    private String[] tokens2;
+    // UTF-8 files tokenized from a mapping instead of html1 and html2
+    private Path path1;
+    private Path path2;
+    // pages tokenized and indexed ahead of the diff
+    private TokenizedDocument document1;
+    private TokenizedDocument document2;
+    // block classes of document1 per block size, prepared once for every diff against it
+    private BlockClasses[] baseBlocks;
+    private TokenList tokens1;
+    private TokenList tokens2;
+    private int[] ids1;
+    private int[] ids2;
     private List<Operation> operations;
-    private StringBuilder diffHtml;
+    private final DiffMetrics metrics = new DiffMetrics();
+    // shared leading and trailing tokens left out of match discovery
+    private int trimmedPrefix;
+    private int trimmedSuffix;
 
     // options
     private int granularity;
@@ -20,6 +42,10 @@ public class CustomHtmlDiff {
     private final double OrphanMatchThreshold = 0.0;
     private final double repeatingWordsAccuracy = 1d;
     private final boolean ignoreWhitespaceDifferences = false;
+    private MatchStrategy matchStrategy = MatchStrategy.BLOCK_INDEX;
+    private ForkJoinPool matchPool;
+    private int parallelMatchThreshold = 16384;
+    private boolean trimCommonEnds;
 
     // main constructor
     public CustomHtmlDiff(String html1, String html2) {
@@ -27,221 +53,355 @@ public class CustomHtmlDiff {
         this.html2 = html2;
     }
 
+    // the pages are decoded chunk by chunk into off heap text, never into Strings
+    public CustomHtmlDiff(Path path1, Path path2) {
+        this.path1 = path1;
+        this.path2 = path2;
+    }
+
+    // reuses the tokens of both handles, and their ids too when one dictionary interned both
+    public CustomHtmlDiff(TokenizedDocument document1, TokenizedDocument document2) {
+        this.document1 = document1;
+        this.document2 = document2;
+    }
+
+    // a candidate against a base prepared by OneToManyHtmlDiff: candidate ids come from the base's dictionary
+    CustomHtmlDiff(TokenizedDocument base, BlockClasses[] baseBlocks, TokenizedDocument candidate) {
+        this(base, candidate);
+        this.baseBlocks = baseBlocks;
+    }
+
     // main function
     public String build() {
-        if (html1.equals(html2)) return html2;
+        StringBuilder diffHtml = new StringBuilder();
+        try {
+            build(diffHtml);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return diffHtml.toString();
+    }
+
+    // writes the diff to out as each operation is rendered, so the rendered document is never held in memory.
+    // a Writer is passed as is, out is neither flushed nor closed
+    public void build(Appendable out) throws IOException {
+        metrics.reset();
+        if (isUnchanged()) {
+            appendUnchanged(out);
+            return;
+        }
 
         tokenize();
+        indexTokens();
         calculateGranularity();
+        trimCommonEnds();
         createOperations();
-        performOperations();
+        try {
+            performOperations(out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-        return diffHtml.toString();
+    // the operations build() renders, for CustomDiffEngine
+    List<Operation> operations() {
+        metrics.reset();
+        try {
+            tokenize();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        indexTokens();
+        calculateGranularity();
+        trimCommonEnds();
+        createOperations();
+        return operations;
     }
 
-    private void tokenize() {
-        Tokenizer tokenizer1 = new Tokenizer();
-        tokens1 = tokenizer1.tokenize(html1);
-        html1 = null;
+    public void setMatchStrategy(MatchStrategy matchStrategy) {
+        this.matchStrategy = matchStrategy;
+    }
 
-        Tokenizer tokenizer2 = new Tokenizer();
-        tokens2 = tokenizer2.tokenize(html2);
-        html2 = null;
+    public DiffMetrics getMetrics() {
+        return metrics;
     }
 
-    private class Tokenizer {
-        Mode mode = Mode.CHARACTER;
-        List<Character> currentToken = new ArrayList<>();
-        List<String> tokens = new ArrayList<>();
+    // true runs match discovery only over the window between shared ends. faster on pages with a long shared
+    // prefix or suffix, but a tie between runs inside the window can break differently than over the whole
+    // documents, so the output may differ from the default
+    public void setTrimCommonEnds(boolean trimCommonEnds) {
+        this.trimCommonEnds = trimCommonEnds;
+    }
 
-        private String[] tokenize(String html) {
-            for (var i = 0; i < html.length(); i++)
-            {
-                var character = html.charAt(i);
-                processCharacter(character);
-            }
-            appendCurrentWordToWords();
-            return tokens.toArray(new String[0]);
-        }
+    // searches independent sub-ranges on the pool, null keeps match discovery on the calling thread
+    public void setMatchPool(ForkJoinPool matchPool) {
+        this.matchPool = matchPool;
+    }
 
-        public void processCharacter(char character) {
-            switch (mode) {
-                case CHARACTER:
-                    processTextCharacter(character);
-                    break;
-                case TAG:
-                    processHtmlTagContinuation(character);
-                    break;
-                case WHITESPACE:
-                    processWhiteSpaceContinuation(character);
-                    break;
-                case ENTITY:
-                    processEntityContinuation(character);
-                    break;
-            }
-        }
+    // smallest range, in old plus new tokens, that is worth a task of its own
+    public void setParallelMatchThreshold(int parallelMatchThreshold) {
+        this.parallelMatchThreshold = parallelMatchThreshold;
+    }
 
-        private void processTextCharacter(char character) {
-            if (isStartOfTag(character)) {
-                appendCurrentWordToWords();
-                currentToken.add('<');
-                mode = Mode.TAG;
-            } else if (isStartOfEntity(character)) {
-                appendCurrentWordToWords();
-                currentToken.add(character);
-                mode = Mode.ENTITY;
-            } else if (Character.isWhitespace(character)) {
-                appendCurrentWordToWords();
-                currentToken.add(character);
-                mode = Mode.WHITESPACE;
-            } else if (isWord(character) && (currentToken.isEmpty() || isWord(currentToken.get(currentToken.size() - 1)))) {
-                currentToken.add(character);
-            } else {
-                appendCurrentWordToWords();
-                currentToken.add(character);
-            }
-        }
+    private boolean isUnchanged() throws IOException {
+        if (document1 != null) return document1.hasSameContent(document2);
+        if (path1 != null) return Files.mismatch(path1, path2) < 0;
+        return html1.equals(html2);
+    }
 
-        private void processEntityContinuation(char character) {
-            if (isStartOfTag(character)) {
-                appendCurrentWordToWords();
-                currentToken.add(character);
-                mode = Mode.TAG;
-            } else if (Character.isWhitespace(character)) {
-                appendCurrentWordToWords();
-                currentToken.add(character);
-                mode = Mode.WHITESPACE;
-            } else if (isEndOfEntity(character)) {
-                boolean switchToNextMode = true;
-                if (!currentToken.isEmpty()) {
-                    currentToken.add(character);
-                    tokens.add(listToString(currentToken));
-
-                    if (tokens.size() > 2 && isWhiteSpace(tokens.get(tokens.size() - 2)) && isWhiteSpace(tokens.get(tokens.size() - 1))) {
-                        String w1 = tokens.get(tokens.size() - 2);
-                        String w2 = tokens.get(tokens.size() - 1);
-                        tokens.subList(tokens.size() - 2, tokens.size()).clear();
-                        currentToken.clear();
-                        currentToken.addAll(stringToList(w1));
-                        currentToken.addAll(stringToList(w2));
-                        mode = Mode.WHITESPACE;
-                        switchToNextMode = false;
-                    }
-                }
+    private void appendUnchanged(Appendable out) throws IOException {
+        if (document1 != null) out.append(document2.getTokens().source());
+        else if (path1 != null) copy(path2, out);
+        else out.append(html2);
+    }
 
-                if (switchToNextMode) {
-                    currentToken.clear();
-                    mode = Mode.CHARACTER;
-                }
-            } else if (isWord(character)) {
-                currentToken.add(character);
-            } else {
-                appendCurrentWordToWords();
-                currentToken.add(character);
-                mode = Mode.CHARACTER;
-            }
+    private void tokenize() throws IOException {
+        if (document1 != null) {
+            tokens1 = document1.getTokens();
+            tokens2 = document2.getTokens();
+            return;
         }
-
-        private void processWhiteSpaceContinuation(char character) {
-            if (isStartOfTag(character)) {
-                appendCurrentWordToWords();
-                currentToken.add(character);
-                mode = Mode.TAG;
-            } else if (isStartOfEntity(character)) {
-                appendCurrentWordToWords();
-                currentToken.add(character);
-                mode = Mode.ENTITY;
-            } else if (Character.isWhitespace(character)) {
-                currentToken.add(character);
-            } else {
-                appendCurrentWordToWords();
-                currentToken.add(character);
-                mode = Mode.CHARACTER;
-            }
+        if (path1 != null) {
+            tokens1 = new HtmlTokenizer().tokenize(path1);
+            tokens2 = new HtmlTokenizer().tokenize(path2);
+            return;
         }
 
-        private void processHtmlTagContinuation(char character) {
-            if (isEndOfTag(character)) {
-                currentToken.add(character);
-                appendCurrentWordToWords();
-                mode = isWhiteSpace(character) ? Mode.WHITESPACE : Mode.CHARACTER;
-            } else {
-                currentToken.add(character);
+        tokens1 = new HtmlTokenizer().tokenize(html1);
+        html1 = null;
+
+        tokens2 = new HtmlTokenizer().tokenize(html2);
+        html2 = null;
+    }
+
+    private static void copy(Path path, Appendable out) throws IOException {
+        try (Reader reader = new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8)) {
+            char[] chunk = new char[8192];
+            for (int count; (count = reader.read(chunk)) >= 0; ) {
+                out.append(CharBuffer.wrap(chunk, 0, count));
             }
         }
+    }
 
-        private void appendCurrentWordToWords() {
-            if (isCurrentWordHasChars()) {
-                StringBuilder word = new StringBuilder(currentToken.size());
-                currentToken.forEach(word::append);
-                tokens.add(word.toString());
-                currentToken.clear();
-            }
+    private void indexTokens() {
+        if (document1 != null && document1.getDictionary() == document2.getDictionary() && !ignoreWhitespaceDifferences) {
+            ids1 = document1.getIds();
+            ids2 = document2.getIds();
+            return;
         }
 
-        private boolean isCurrentWordHasChars() {
-            return currentToken != null && !currentToken.isEmpty();
+        TokenDictionary dictionary = new TokenDictionary();
+        ids1 = new int[tokens1.size()];
+        for (int i = 0; i < ids1.length; i++) {
+            ids1[i] = internToken(dictionary, tokens1, i);
+        }
+        ids2 = new int[tokens2.size()];
+        for (int i = 0; i < ids2.length; i++) {
+            ids2[i] = internToken(dictionary, tokens2, i);
         }
     }
 
+    // interns the stripped-attribute key, optionally folding all whitespace into one token
+    private int internToken(TokenDictionary dictionary, TokenList tokens, int index) {
+        if (ignoreWhitespaceDifferences && tokens.kind(index) == TokenKind.WHITESPACE) return dictionary.intern(" ");
+
+        return dictionary.intern(tokens.source(), tokens.keyStart(index), tokens.keyEnd(index), tokens.keySuffix(index));
+    }
+
     private void calculateGranularity() {
-        granularity = Math.min(granularityThreshold, Math.min(tokens1.length, tokens2.length));
+        granularity = Math.min(granularityThreshold, Math.min(tokens1.size(), tokens2.size()));
+    }
+
+    // the shared prefix and suffix become equal operations directly. both ends are snapped back to a tag
+    // boundary so the words and special case tags around a change are still matched inside the window
+    private void trimCommonEnds() {
+        int length = Math.min(ids1.length, ids2.length);
+        int prefix = 0;
+        int suffix = 0;
+
+        if (trimCommonEnds) {
+            while (prefix < length && ids1[prefix] == ids2[prefix]) prefix++;
+            while (prefix > 0 && !tokens2.isTag(prefix - 1)) prefix--;
+
+            while (suffix < length - prefix && ids1[ids1.length - 1 - suffix] == ids2[ids2.length - 1 - suffix]) suffix++;
+            while (suffix > 0 && !tokens2.isTag(ids2.length - suffix)) suffix--;
+        }
+
+        trimmedPrefix = prefix;
+        trimmedSuffix = suffix;
+        metrics.setTokensInOld(ids1.length);
+        metrics.setTokensInNew(ids2.length);
+        metrics.setTrimmedPrefix(prefix);
+        metrics.setTrimmedSuffix(suffix);
     }
 
     private void createOperations() {
-        OperationCreator operationCreator = new OperationCreator(tokens1, tokens2);
+        OperationCreator operationCreator = new OperationCreator(tokens1, tokens2, ids1, ids2);
         operations = operationCreator.create();
     }
 
     private class OperationCreator {
-        private String[] tokens1;
-        private String[] tokens2;
+        private TokenList tokens1;
+        private TokenList tokens2;
+        private int[] ids1;
+        private int[] ids2;
         private List<Operation> operations = new ArrayList<>();
         private List<Match> matches = new ArrayList<>();
+        // built lazily per block size and shared by every findMatch of this diff
+        private final BlockIndex[] blockIndexes = new BlockIndex[granularity + 1];
+        private final MatchSearcher searcher = new MatchSearcher();
 
-        int positionInOld = 0;
-        int positionInNew = 0;
-
-        public OperationCreator(String[] tokens1, String[] tokens2) {
+        public OperationCreator(TokenList tokens1, TokenList tokens2, int[] ids1, int[] ids2) {
             this.tokens1 = tokens1;
             this.tokens2 = tokens2;
+            this.ids1 = ids1;
+            this.ids2 = ids2;
         }
 
         public List<Operation> create() {
-            findMatches(0, tokens1.length, 0, tokens2.length);
-            matches.add(new Match(tokens1.length, tokens2.length, 0));
+            int endInOld = tokens1.size() - trimmedSuffix;
+            int endInNew = tokens2.size() - trimmedSuffix;
+
+            if (trimmedPrefix > 0) matches.add(new Match(0, 0, trimmedPrefix));
+            findMatches(trimmedPrefix, endInOld, trimmedPrefix, endInNew);
+            if (trimmedSuffix > 0) matches.add(new Match(endInOld, endInNew, trimmedSuffix));
+            matches.add(new Match(tokens1.size(), tokens2.size(), 0));
             removeOrphans();
-            createOperations();
+            operations = toOperations(matches);
 
             return operations;
         }
 
         private void findMatches(int startInOld, int endInOld, int startInNew, int endInNew) {
-            Match match = findMatch(startInOld, endInOld, startInNew, endInNew);
+            MatchRange root = new MatchRange(startInOld, endInOld, startInNew, endInNew);
+            List<MatchRange> frames = new ArrayList<>();
+
+            if (matchPool == null || root.size() < parallelMatchThreshold) {
+                walk(root, searcher, false, frames);
+            } else {
+                // every block size has to exist before the pool threads share the indexes
+                for (int i = granularity; i > 0; i--) blockIndex(i);
+                frames = matchPool.invoke(new MatchTask(root));
+            }
 
-            if (match != null) {
-                if (startInOld < match.getStartInOld() && startInNew < match.getStartInNew()) {
-                    findMatches(startInOld, match.getStartInOld(), startInNew, match.getStartInNew());
+            collect(frames);
+        }
+
+        // in-order walk over an explicit stack: the left range of a match is searched before the match is
+        // emitted and the right range after it, so stack depth no longer follows the number of matches.
+        // with fork set, sub-ranges above the cutoff are handed to the pool and kept as a frame in their place
+        private void walk(MatchRange root, MatchSearcher searcher, boolean fork, List<MatchRange> frames) {
+            Deque<MatchRange> work = new ArrayDeque<>();
+            work.push(root);
+
+            while (!work.isEmpty()) {
+                MatchRange range = work.pop();
+                if (range.match != null) {
+                    frames.add(range);
+                    continue;
                 }
+                if (fork && range != root && range.size() >= parallelMatchThreshold) {
+                    frames.add(new MatchRange(new MatchTask(range).fork()));
+                    continue;
+                }
+
+                Match match = searcher.findMatch(range.startInOld, range.endInOld, range.startInNew, range.endInNew);
+                if (match == null) continue;
+
+                if (match.getEndInOld() < range.endInOld && match.getEndInNew() < range.endInNew) {
+                    work.push(new MatchRange(match.getEndInOld(), range.endInOld, match.getEndInNew(), range.endInNew));
+                }
+
+                work.push(new MatchRange(match));
+
+                if (range.startInOld < match.getStartInOld() && range.startInNew < match.getStartInNew()) {
+                    work.push(new MatchRange(range.startInOld, match.getStartInOld(), range.startInNew, match.getStartInNew()));
+                }
+            }
+        }
 
-                matches.add(match);
+        // flattens match frames into matches, joining forked ranges in document order. tasks only return
+        // their frames and never join each other, so nesting stays on this explicit stack
+        private void collect(List<MatchRange> frames) {
+            Deque<Iterator<MatchRange>> pending = new ArrayDeque<>();
+            pending.push(frames.iterator());
 
-                if (match.getEndInOld() < endInOld && match.getEndInNew() < endInNew) {
-                    findMatches(match.getEndInOld(), endInOld, match.getEndInNew(), endInNew);
+            while (!pending.isEmpty()) {
+                Iterator<MatchRange> iterator = pending.peek();
+                if (!iterator.hasNext()) {
+                    pending.pop();
+                    continue;
+                }
+
+                MatchRange frame = iterator.next();
+                if (frame.task != null) {
+                    pending.push(frame.task.join().iterator());
+                } else {
+                    matches.add(frame.match);
                 }
             }
         }
 
-        private Match findMatch(int startInOld, int endInOld, int startInNew, int endInNew) {
-            for (int i = granularity; i > 0; i--) {
-                MatchOptions options = new MatchOptions(i, repeatingWordsAccuracy, ignoreWhitespaceDifferences);
-                MatchFinder finder = new MatchFinder(tokens1, tokens2, startInOld, endInOld, startInNew, endInNew, options);
-                Match match = finder.findMatch();
-                if (match != null) {
-                    return match;
+        private boolean canRemoveRepeatingWords(int startInNew, int endInNew) {
+            return endInNew - startInNew > ids2.length * repeatingWordsAccuracy;
+        }
+
+        private BlockIndex blockIndex(int blockSize) {
+            if (blockIndexes[blockSize] == null) {
+                int endInNew = ids2.length - trimmedSuffix;
+                blockIndexes[blockSize] = baseBlocks != null && blockSize < baseBlocks.length
+                        ? new BlockIndex(baseBlocks[blockSize], ids2, trimmedPrefix, endInNew)
+                        : new BlockIndex(ids1, ids2, blockSize, trimmedPrefix, ids1.length - trimmedSuffix, trimmedPrefix, endInNew);
+            }
+            return blockIndexes[blockSize];
+        }
+
+        // one range searched on a pool thread; the result is deterministic because every findMatch only
+        // depends on its range, and collect puts the frames back in the order of the sequential walk.
+        // each task owns its scratch, which grows lazily, so nothing of a diff outlives it on the pool threads
+        private class MatchTask extends RecursiveTask<List<MatchRange>> {
+            private static final long serialVersionUID = 1L;
+
+            private final MatchRange range;
+
+            MatchTask(MatchRange range) {
+                this.range = range;
+            }
+
+            @Override
+            protected List<MatchRange> compute() {
+                List<MatchRange> frames = new ArrayList<>();
+                walk(range, new MatchSearcher(), true, frames);
+                return frames;
+            }
+        }
+
+        // the mutable scratch of findMatch, one per sequential walk or pool task
+        private class MatchSearcher {
+            private final MatchFinder matchFinder = new MatchFinder();
+            private SuffixAutomaton suffixAutomaton;
+
+            Match findMatch(int startInOld, int endInOld, int startInNew, int endInNew) {
+                if (matchStrategy == MatchStrategy.SUFFIX_AUTOMATON && granularity > 0 && !canRemoveRepeatingWords(startInNew, endInNew)) {
+                    return findLongestCommonRun(startInOld, endInOld, startInNew, endInNew);
                 }
+
+                for (int i = granularity; i > 0; i--) {
+                    Match match = matchFinder.findMatch(blockIndex(i), startInOld, endInOld, startInNew, endInNew);
+                    if (match != null) {
+                        return match;
+                    }
+                }
+                return null;
+            }
+
+            // the longest common run over all block sizes is the plain longest common token run, which the
+            // automaton finds directly; it can only stand in while no block is frequent enough to be removed
+            private Match findLongestCommonRun(int startInOld, int endInOld, int startInNew, int endInNew) {
+                if (suffixAutomaton == null) suffixAutomaton = new SuffixAutomaton();
+                suffixAutomaton.build(ids2, startInNew, endInNew);
+                return suffixAutomaton.longestCommonRun(ids1, startInOld, endInOld);
             }
-            return null;
         }
 
         public void removeOrphans() {
@@ -283,176 +443,322 @@ public class CustomHtmlDiff {
             matches = filteredMatches;
         }
 
-        private int calculateDistance(int start, int end, String[] words) {
+        private int calculateDistance(int start, int end, TokenList words) {
             int distance = 0;
             for (int i = start; i < end; i++) {
-                distance += words[i].length();
+                distance += words.length(i);
             }
             return distance;
         }
 
-        private int calculateMatchLength(int start, int end, String[] words) {
+        private int calculateMatchLength(int start, int end, TokenList words) {
             int length = 0;
             for (int i = start; i < end; i++) {
-                length += words[i].length();
+                length += words.length(i);
             }
             return length;
         }
+    }
 
-        private void createOperations() {
-            for (Match match : matches) {
-                boolean matchStartsAtCurrentPositionInOld = (positionInOld == match.getStartInOld());
-                boolean matchStartsAtCurrentPositionInNew = (positionInNew == match.getStartInNew());
-                Action action;
-
-                if (!matchStartsAtCurrentPositionInOld && !matchStartsAtCurrentPositionInNew) action = Action.REPLACE;
-                else if (matchStartsAtCurrentPositionInOld && !matchStartsAtCurrentPositionInNew) action = Action.INSERT;
-                else if (!matchStartsAtCurrentPositionInOld) action = Action.DELETE;
-                else action = Action.NONE;
-
-                if (action != Action.NONE) {
-                    operations.add(new Operation(action, positionInOld, match.getStartInOld(), positionInNew, match.getStartInNew()));
-                }
-                if (match.getSize() != 0) {
-                    operations.add(new Operation(Action.EQUAL, match.getStartInOld(), match.getEndInOld(), match.getStartInNew(), match.getEndInNew()));
-                }
-
-                positionInOld = match.getEndInOld();
-                positionInNew = match.getEndInNew();
+    // the operations between consecutive matches, the last match being the empty one at both ends
+    static List<Operation> toOperations(List<Match> matches) {
+        List<Operation> operations = new ArrayList<>();
+        int positionInOld = 0;
+        int positionInNew = 0;
+        for (Match match : matches) {
+            boolean matchStartsAtCurrentPositionInOld = (positionInOld == match.getStartInOld());
+            boolean matchStartsAtCurrentPositionInNew = (positionInNew == match.getStartInNew());
+            Action action;
+
+            if (!matchStartsAtCurrentPositionInOld && !matchStartsAtCurrentPositionInNew) action = Action.REPLACE;
+            else if (matchStartsAtCurrentPositionInOld && !matchStartsAtCurrentPositionInNew) action = Action.INSERT;
+            else if (!matchStartsAtCurrentPositionInOld) action = Action.DELETE;
+            else action = Action.NONE;
+
+            if (action != Action.NONE) {
+                operations.add(new Operation(action, positionInOld, match.getStartInOld(), positionInNew, match.getStartInNew()));
             }
+            if (match.getSize() != 0) {
+                operations.add(new Operation(Action.EQUAL, match.getStartInOld(), match.getEndInOld(), match.getStartInNew(), match.getEndInNew()));
+            }
+
+            positionInOld = match.getEndInOld();
+            positionInNew = match.getEndInNew();
         }
+        return operations;
     }
 
+    // longest common run of blocks; reused for every findMatch of a diff so the dp allocates nothing
     private class MatchFinder {
-        private final String[] tokens1;
-        private final String[] tokens2;
-        private final int startInOld;
-        private final int endInOld;
-        private final int startInNew;
-        private final int endInNew;
-        private Map<String, List<Integer>> tokenIndices;
-        private final MatchOptions options;
-
-        public MatchFinder(String[] tokens1, String[] tokens2, int startInOld, int endInOld, int startInNew, int endInNew, MatchOptions options) {
-            this.tokens1 = tokens1;
-            this.tokens2 = tokens2;
-            this.startInOld = startInOld;
-            this.endInOld = endInOld;
-            this.startInNew = startInNew;
-            this.endInNew = endInNew;
-            this.options = options;
-        }
-
-        public Match findMatch() {
-            indexNewWords();
-            removeRepeatingWords();
-
-            if (tokenIndices.isEmpty()) return null;
+        // match length per new position for the last two old rows (by parity), offset by one so that
+        // indexInNew - 1 is always a valid slot; an entry only counts when its stamp is the previous row
+        private int[] matchLengths = new int[0];
+        private int[] matchStamps = new int[0];
+        private int row;
+
+        public Match findMatch(BlockIndex index, int startInOld, int endInOld, int startInNew, int endInNew) {
+            int blockSize = index.blockSize();
+            // blocks must lie completely inside both ranges
+            int firstEndInNew = startInNew + blockSize - 1;
+            double threshold = index.newLength() * repeatingWordsAccuracy;
+            int width = Math.max(endInNew - startInNew, 0) + 1;
+            prepare(width);
 
             int bestMatchInOld = startInOld;
             int bestMatchInNew = startInNew;
             int bestMatchSize = 0;
 
-            Map<Integer, Integer> matchLengthAt = new HashMap<>();
-            Queue<String> block = new LinkedList<>();
+            for (int indexInOld = startInOld + blockSize - 1; indexInOld < endInOld; indexInOld++) {
+                int previousRow = row++;
+                int current = (row & 1) * width;
+                int previous = (previousRow & 1) * width;
 
-            for (int indexInOld = startInOld; indexInOld < endInOld; indexInOld++) {
-                String word = normalizeForIndex(tokens1[indexInOld]);
-                String index = putNewWord(block, word, options.getBlockSize());
+                int blockClass = index.classInOld(indexInOld);
+                int from = blockClass < 0 ? 0 : index.lowerBound(blockClass, firstEndInNew);
+                int to = blockClass < 0 ? 0 : index.lowerBound(blockClass, endInNew);
 
-                if (index == null)
-                    continue;
-
-                Map<Integer, Integer> newMatchLengthAt = new HashMap<>();
-
-                if (!tokenIndices.containsKey(index)) {
-                    matchLengthAt = newMatchLengthAt;
+                // blocks repeating more often than the threshold inside the range are not matched
+                if (from == to || to - from > threshold) {
                     continue;
                 }
 
-                for (int indexInNew : tokenIndices.get(index)) {
-                    int newMatchLength = (matchLengthAt.containsKey(indexInNew - 1) ? matchLengthAt.get(indexInNew - 1): 0) + 1;
-                    newMatchLengthAt.put(indexInNew, newMatchLength);
+                for (int posting = from; posting < to; posting++) {
+                    int indexInNew = index.posting(posting);
+                    int slot = indexInNew - startInNew + 1;
+                    int newMatchLength = (matchStamps[previous + slot - 1] == previousRow ? matchLengths[previous + slot - 1] : 0) + 1;
+                    matchLengths[current + slot] = newMatchLength;
+                    matchStamps[current + slot] = row;
 
                     if (newMatchLength > bestMatchSize) {
-                        bestMatchInOld = indexInOld - newMatchLength + 1 - options.getBlockSize() + 1;
-                        bestMatchInNew = indexInNew - newMatchLength + 1 - options.getBlockSize() + 1;
+                        bestMatchInOld = indexInOld - newMatchLength + 1 - blockSize + 1;
+                        bestMatchInNew = indexInNew - newMatchLength + 1 - blockSize + 1;
                         bestMatchSize = newMatchLength;
                     }
                 }
+            }
+            row++;
+
+            return (bestMatchSize != 0) ? new Match(bestMatchInOld, bestMatchInNew, bestMatchSize + blockSize - 1) : null;
+        }
 
-                matchLengthAt = newMatchLengthAt;
+        private void prepare(int width) {
+            if (matchLengths.length < 2 * width) {
+                matchLengths = new int[2 * width];
+                matchStamps = new int[2 * width];
+                row = 1;
+            } else if (row > Integer.MAX_VALUE - 2 * width) {
+                Arrays.fill(matchStamps, 0);
+                row = 1;
             }
+        }
+    }
+
+    // groups every block of blockSize tokens by content once per diff: blocks ending in new are kept as
+    // sorted posting lists per block class so any sub-range is answered with two binary searches
+    private static class BlockIndex {
+        private final int[] ids2;
+        private final int blockSize;
+        // class of the block ending at each old position from oldOffset, -1 when no block has the same tokens
+        private final int[] classesInOld;
+        private final int oldOffset;
+        // postings of class c are postings[postingStarts[c]..postingStarts[c + 1]), ascending block ends in new
+        private int[] postingStarts;
+        private int[] postings;
+
+        // classes from the blocks of the new window, the old window classified against them
+        BlockIndex(int[] ids1, int[] ids2, int blockSize, int startInOld, int endInOld, int startInNew, int endInNew) {
+            this.ids2 = ids2;
+            this.blockSize = blockSize;
+            BlockClasses classesInNew = new BlockClasses(ids2, startInNew, endInNew, blockSize);
+            this.classesInOld = classesInNew.classify(ids1, startInOld, endInOld);
+            this.oldOffset = startInOld;
+            index(classesInNew.classes, classesInNew.classCount, startInNew, endInNew);
+        }
+
+        // classes of a prepared old page, only the new window is classified. an old block whose tokens are
+        // nowhere in the window has no postings, which findMatch skips like a block without a class
+        BlockIndex(BlockClasses classesInOld, int[] ids2, int startInNew, int endInNew) {
+            this.ids2 = ids2;
+            this.blockSize = classesInOld.blockSize;
+            this.classesInOld = classesInOld.classes;
+            this.oldOffset = classesInOld.start;
+            index(classesInOld.classify(ids2, startInNew, endInNew), classesInOld.classCount, startInNew, endInNew);
+        }
+
+        int blockSize() {
+            return blockSize;
+        }
 
-            return (bestMatchSize != 0) ? new Match(bestMatchInOld, bestMatchInNew, bestMatchSize + options.getBlockSize() - 1) : null;
+        int newLength() {
+            return ids2.length;
         }
 
-        private void indexNewWords() {
-            tokenIndices = new HashMap<>();
-            Queue<String> block = new LinkedList<>();
-            for (int i = startInNew; i < endInNew; i++) {
-                String word = normalizeForIndex(tokens2[i]);
-                String key = putNewWord(block, word, options.getBlockSize());
+        int classInOld(int indexInOld) {
+            return classesInOld[indexInOld - oldOffset];
+        }
 
-                if (key == null) continue;
+        int posting(int posting) {
+            return postings[posting];
+        }
 
-                List<Integer> indices = tokenIndices.getOrDefault(key, new ArrayList<>());
-                indices.add(i);
-                tokenIndices.put(key, indices);
+        // first posting of blockClass whose block ends at or after indexInNew
+        int lowerBound(int blockClass, int indexInNew) {
+            int low = postingStarts[blockClass];
+            int high = postingStarts[blockClass + 1];
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (postings[mid] < indexInNew) low = mid + 1;
+                else high = mid;
             }
+            return low;
         }
 
-        private static String putNewWord(Queue<String> block, String word, int blockSize) {
-            block.offer(word);
-            if (block.size() > blockSize) block.poll();
-            if (block.size() != blockSize) return null;
+        private void index(int[] classesInNew, int classCount, int startInNew, int endInNew) {
+            postingStarts = new int[classCount + 1];
+            for (int i = startInNew + blockSize - 1; i < endInNew; i++) {
+                int blockClass = classesInNew[i - startInNew];
+                if (blockClass >= 0) postingStarts[blockClass + 1]++;
+            }
+            for (int c = 0; c < classCount; c++) postingStarts[c + 1] += postingStarts[c];
+            postings = new int[postingStarts[classCount]];
+            int[] fill = Arrays.copyOf(postingStarts, classCount);
+            for (int i = startInNew + blockSize - 1; i < endInNew; i++) {
+                int blockClass = classesInNew[i - startInNew];
+                if (blockClass >= 0) postings[fill[blockClass]++] = i;
+            }
+        }
+    }
 
-            StringBuilder result = new StringBuilder(blockSize);
-            for (String s : block) {
-                result.append(s);
+    // the blocks of blockSize tokens in ids[start, end) grouped by content, numbered by first occurrence.
+    // immutable once built, so the classes of a base page are shared by every diff against it
+    static final class BlockClasses {
+        private static final long HashBase = 0x9E3779B97F4A7C15L;
+
+        private final int[] ids;
+        private final int blockSize;
+        private final int start;
+        // class of the block ending at each position from start, -1 before the first block ends
+        private final int[] classes;
+        // open addressing table from rolling block hash to block class
+        private final long[] slotHashes;
+        private final int[] slotClasses;
+        private final int slotMask;
+        private final int[] classStarts;
+        private int classCount;
+
+        BlockClasses(int[] ids, int start, int end, int blockSize) {
+            this.ids = ids;
+            this.blockSize = blockSize;
+            this.start = start;
+            int length = end - start;
+            int capacity = Integer.highestOneBit(Math.max(length, 1) * 2 - 1) * 2;
+            slotHashes = new long[capacity];
+            slotClasses = new int[capacity];
+            slotMask = capacity - 1;
+            classStarts = new int[length];
+            classes = new int[length];
+
+            long power = power(blockSize);
+            long hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = roll(hash, ids, start, i, blockSize, power);
+                if (i - start < blockSize - 1) {
+                    classes[i - start] = -1;
+                    continue;
+                }
+
+                int blockClass = findClass(hash, ids, i - blockSize + 1);
+                if (blockClass < 0) blockClass = addClass(hash, i - blockSize + 1);
+                classes[i - start] = blockClass;
             }
-            return result.toString();
         }
 
-        private String normalizeForIndex(String token) {
-            token = stripAnyAttributes(token);
-            if (options.isIgnoreWhitespaceDifferences() && isWhiteSpace(token)) return " ";
+        // classes of the blocks of other ending in [from, to), -1 where none of these blocks has the same tokens
+        int[] classify(int[] other, int from, int to) {
+            int[] result = new int[Math.max(to - from, 0)];
+            long power = power(blockSize);
+            long hash = 0;
+            for (int i = from; i < to; i++) {
+                hash = roll(hash, other, from, i, blockSize, power);
+                result[i - from] = i - from < blockSize - 1 ? -1 : findClass(hash, other, i - blockSize + 1);
+            }
+            return result;
+        }
 
-            return token;
+        // class of the block of other starting at blockStart, verified token by token against the class representative
+        private int findClass(long hash, int[] other, int blockStart) {
+            for (int slot = (int) (hash ^ (hash >>> 32)) & slotMask; ; slot = (slot + 1) & slotMask) {
+                int blockClass = slotClasses[slot] - 1;
+                if (blockClass < 0) return -1;
+                if (slotHashes[slot] == hash && Arrays.equals(other, blockStart, blockStart + blockSize, ids, classStarts[blockClass], classStarts[blockClass] + blockSize)) {
+                    return blockClass;
+                }
+            }
         }
 
-        public void removeRepeatingWords() {
-            double threshold = tokens2.length * repeatingWordsAccuracy;
+        private int addClass(long hash, int blockStart) {
+            int slot = (int) (hash ^ (hash >>> 32)) & slotMask;
+            while (slotClasses[slot] != 0) slot = (slot + 1) & slotMask;
+            int blockClass = classCount++;
+            slotHashes[slot] = hash;
+            slotClasses[slot] = blockClass + 1;
+            classStarts[blockClass] = blockStart;
+            return blockClass;
+        }
 
-            String[] repeatingWords = tokenIndices.entrySet().stream()
-                    .filter(entry -> entry.getValue().size() > threshold)
-                    .map(Map.Entry::getKey)
-                    .toArray(String[]::new);
+        // polynomial hash of the last blockSize ids ending at end, never reaching back before start
+        private static long roll(long hash, int[] ids, int start, int end, int blockSize, long power) {
+            hash = hash * HashBase + ids[end] + 1;
+            if (end - start >= blockSize) hash -= (ids[end - blockSize] + 1) * power;
+            return hash;
+        }
 
-            for (String word : repeatingWords) {tokenIndices.remove(word);}
+        private static long power(int blockSize) {
+            long power = 1;
+            for (int i = 0; i < blockSize; i++) power *= HashBase;
+            return power;
         }
     }
 
-    private void performOperations() {
-        OperationPerformer operationPerformer = new OperationPerformer(operations);
-        diffHtml = operationPerformer.perform();
+    // renders operations found elsewhere over both tokenized pages, for IncrementalHtmlDiff
+    static void render(TokenList tokens1, TokenList tokens2, List<Operation> operations, Appendable out) throws IOException {
+        CustomHtmlDiff diff = new CustomHtmlDiff((String) null, null);
+        diff.tokens1 = tokens1;
+        diff.tokens2 = tokens2;
+        diff.operations = operations;
+        try {
+            diff.performOperations(out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void performOperations(Appendable out) {
+        OperationPerformer operationPerformer = new OperationPerformer(operations, out);
+        operationPerformer.perform();
     }
 
     private class OperationPerformer {
+        // chars buffered before they are handed to out
+        private static final int FlushThreshold = 8192;
+
         private List<Operation> operations;
-        private StringBuilder diffHtml = new StringBuilder();
+        private final Appendable out;
+        // out itself when it is a StringBuilder, a buffer flushed to out otherwise
+        private final StringBuilder diffHtml;
 
         private static final String InsTag = "ins";
         private static final String DelTag = "del";
-        private static final Map<String, Integer> SpecialCaseClosingTags =  Map.ofEntries(Map.entry("</strong>", 0), Map.entry("</em>", 0), Map.entry("</b>", 0), Map.entry("</i>", 0), Map.entry("</big>", 0), Map.entry("</small>", 0), Map.entry("</u>", 0), Map.entry("</sub>", 0), Map.entry("</sup>", 0), Map.entry("</strike>", 0), Map.entry("</s>", 0), Map.entry("</span>", 0));
-        private static final Pattern SpecialCaseOpeningTagRegex = Pattern.compile("<((strong)|(b)|(i)|(em)|(big)|(small)|(u)|(sub)|(sup)|(strike)|(s)|(span))[>\\s]+", Pattern.CASE_INSENSITIVE);
+        // tag names of the special case opening tags seen so far
         private final Deque<String> SpecialTagDiffStack = new ArrayDeque<>();
 
-        public OperationPerformer(List<Operation> operations) {
+        public OperationPerformer(List<Operation> operations, Appendable out) {
             this.operations = operations;
+            this.out = out;
+            this.diffHtml = out instanceof StringBuilder ? (StringBuilder) out : new StringBuilder();
         }
 
-        private StringBuilder perform() {
+        private void perform() {
             for (Operation operation : operations) {
                 switch (operation.action)
                 {
@@ -471,9 +777,20 @@ public class CustomHtmlDiff {
                         processReplaceOperation(operation);
                         break;
                 }
+                flush(FlushThreshold);
             }
+            flush(0);
+        }
 
-            return diffHtml;
+        // hands the buffer to out once it holds more than threshold chars
+        private void flush(int threshold) {
+            if (diffHtml == out || diffHtml.length() <= threshold) return;
+            try {
+                out.append(diffHtml);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            diffHtml.setLength(0);
         }
 
         private void processReplaceOperation(Operation operation) {
@@ -482,131 +799,143 @@ public class CustomHtmlDiff {
         }
 
         private void processInsertOperation(Operation operation, String cssClass) {
-            List<String> text = IntStream.range(0, tokens2.length)
-                    .filter(pos -> pos >= operation.getStartInNew() && pos < operation.getEndInNew())
-                    .mapToObj(pos -> tokens2[pos])
-                    .collect(Collectors.toList());
-            insertTag(InsTag, cssClass, text);
+            insertTag(InsTag, cssClass, tokens2, operation.getStartInNew(), operation.getEndInNew());
         }
 
         private void processDeleteOperation(Operation operation, String cssClass) {
-            List<String> text = IntStream.range(0, tokens1.length)
-                    .filter(pos -> pos >= operation.getStartInOld() && pos < operation.getEndInOld())
-                    .mapToObj(pos -> tokens1[pos])
-                    .collect(Collectors.toList());
-            insertTag(DelTag, cssClass, text);
+            insertTag(DelTag, cssClass, tokens1, operation.getStartInOld(), operation.getEndInOld());
         }
 
         private void processEqualOperation(Operation operation) {
-            String result = IntStream.range(0, tokens2.length)
-                    .filter(pos -> pos >= operation.getStartInNew() && pos < operation.getEndInNew())
-                    .mapToObj(pos -> tokens2[pos])
-                    .collect(Collectors.joining());
-            diffHtml.append(result);
+            for (int position = operation.getStartInNew(); position < operation.getEndInNew(); position++) {
+                tokens2.appendTo(diffHtml, position);
+                flush(FlushThreshold);
+            }
         }
 
-        private void insertTag(String tag, String cssClass, List<String> words) {
+        // renders tokens[start, end), position is the first token not rendered or skipped yet
+        private void insertTag(String tag, String cssClass, TokenList tokens, int start, int end) {
+            int position = start;
             while (true) {
-                if (words.isEmpty()) { break; }
+                if (position == end) { break; }
 
-                String[] nonTags = extractConsecutiveWords(words, x -> !isTag(x));
+                int nonTagsEnd = consecutiveWordsEnd(tokens, position, end, false);
                 String specialCaseTagInjection = "";
                 boolean specialCaseTagInjectionIsBefore = false;
 
-                if (nonTags.length != 0) {
-                    String text = wrapText(String.join("", nonTags), tag, cssClass);
-                    diffHtml.append(text);
+                if (nonTagsEnd > position) {
+                    wrapWords(tokens, position, nonTagsEnd, tag, cssClass);
+                    position = nonTagsEnd;
                 } else {
-                    if (SpecialCaseOpeningTagRegex.matcher(words.get(0)).matches()) {
-                        SpecialTagDiffStack.push(words.get(0));
+                    if (tokens.isSpecialCaseOpeningTag(position)) {
+                        SpecialTagDiffStack.push(tokens.tagName(position));
                         specialCaseTagInjection = "<ins class='mod'>";
                         if (tag.equals(DelTag)) {
-                            words.remove(0);
+                            position++;
 
-                            while (!words.isEmpty() && SpecialCaseOpeningTagRegex.matcher(words.get(0)).matches()) {
-                                words.remove(0);
+                            while (position < end && tokens.isSpecialCaseOpeningTag(position)) {
+                                position++;
                             }
                         }
-                    } else if (SpecialCaseClosingTags.containsKey(words.get(0))) {
+                    } else if (tokens.isSpecialCaseClosingTag(position)) {
                         String openingTag = SpecialTagDiffStack.isEmpty() ? null : SpecialTagDiffStack.pop();
                         boolean hasOpeningTag = openingTag != null;
-                        boolean openingAndClosingTagsMatch = getTagName(openingTag).equals(getTagName(words.get(words.size() - 1)));
+                        boolean openingAndClosingTagsMatch = hasOpeningTag && openingTag.equals(tokens.tagName(end - 1));
                         if (hasOpeningTag && openingAndClosingTagsMatch) {
                             specialCaseTagInjection = "</ins>";
                             specialCaseTagInjectionIsBefore = true;
                         }
 
                         if (tag.equals(DelTag)) {
-                            words.remove(0);
-                            while (!words.isEmpty() && SpecialCaseClosingTags.containsKey(words.get(0))) {words.remove(0);}
+                            position++;
+                            while (position < end && tokens.isSpecialCaseClosingTag(position)) {position++;}
                         }
                     }
                 }
 
-                if (words.isEmpty() && specialCaseTagInjection.isEmpty()) {
+                flush(FlushThreshold);
+                if (position == end && specialCaseTagInjection.isEmpty()) {
                     break;
                 }
 
+                int tagsEnd = consecutiveWordsEnd(tokens, position, end, true);
                 if (specialCaseTagInjectionIsBefore) {
-                    diffHtml.append(specialCaseTagInjection).append(String.join("", extractConsecutiveWords(words, CustomHtmlDiff::isTag)));
+                    diffHtml.append(specialCaseTagInjection);
+                    joinWords(tokens, position, tagsEnd);
                 } else {
-                    diffHtml.append(String.join("", extractConsecutiveWords(words, CustomHtmlDiff::isTag))).append(specialCaseTagInjection);
+                    joinWords(tokens, position, tagsEnd);
+                    diffHtml.append(specialCaseTagInjection);
                 }
+                position = tagsEnd;
             }
         }
 
-        private String[] extractConsecutiveWords(List<String> words, java.util.function.Predicate<String> condition) {
-            Integer indexOfFirstTag = null;
-
-            for (int i = 0; i < words.size(); i++) {
-                String word = words.get(i);
-
-                if (i == 0 && word.equals(" ")) {
-                    words.set(i, "&nbsp;");
-                }
+        // end of the run of tags, or of non tags, starting at position
+        private int consecutiveWordsEnd(TokenList tokens, int position, int end, boolean tags) {
+            while (position < end && tokens.isTag(position) == tags) position++;
+            return position;
+        }
 
-                if (!condition.test(word)) {
-                    indexOfFirstTag = i;
-                    break;
-                }
-            }
+        // same output as wrapText(joined words, tag, cssClass)
+        private void wrapWords(TokenList tokens, int start, int end, String tag, String cssClass) {
+            diffHtml.append('<').append(tag).append(" class='").append(cssClass).append("'>");
+            joinWords(tokens, start, end);
+            diffHtml.append("</").append(tag).append('>');
+        }
 
-            if (indexOfFirstTag != null) {
-                String[] items = IntStream.range(0, indexOfFirstTag)
-                        .mapToObj(words::get)
-                        .toArray(String[]::new);
-                if (indexOfFirstTag > 0) {
-                    words.subList(0, indexOfFirstTag).clear();
+        // a leading single space is rendered as &nbsp; so it survives inside the wrapper tag
+        private void joinWords(TokenList tokens, int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (i == start && tokens.equals(i, " ")) {
+                    diffHtml.append("&nbsp;");
+                } else {
+                    tokens.appendTo(diffHtml, i);
                 }
-                return items;
-            } else {
-                String[] items = words.toArray(new String[0]);
-                words.clear();
-                return items;
             }
         }
     }
 
     // utils
-    private static final Pattern openingTagRegex = Pattern.compile("^\\s*<[^>]+>\\s*$");
-    private static final Pattern closingTagTexRegex = Pattern.compile("^\\s*</[^>]+>\\s*$");
-    private static final Pattern tagWordRegex = Pattern.compile("<[^\\s>]+");
-    private static final Pattern whitespaceRegex = Pattern.compile("^(\\s|&nbsp;)+$");
-    private static final Pattern wordRegex = Pattern.compile("[\\w#@]+");
-    private static final Pattern tagRegex = Pattern.compile("</?(?<name>[^\\s/>]+)[^>]*>");
+    private static final boolean[] wordChars = new boolean[128];
+    private static final boolean[] whitespaceChars = new boolean[128];
     private static final String[] specialCaseWordTags = { "<img" };
+    static final String[] specialCaseOpeningTagNames = { "strong", "b", "i", "em", "big", "small", "u", "sub", "sup", "strike", "s", "span" };
+    static final String[] specialCaseClosingTags = { "</strong>", "</em>", "</b>", "</i>", "</big>", "</small>", "</u>", "</sub>", "</sup>", "</strike>", "</s>", "</span>" };
+
+    static {
+        // [\w#@] and \s without UNICODE_CHARACTER_CLASS
+        for (char c = 'a'; c <= 'z'; c++) wordChars[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) wordChars[c] = true;
+        for (char c = '0'; c <= '9'; c++) wordChars[c] = true;
+        wordChars['_'] = true;
+        wordChars['#'] = true;
+        wordChars['@'] = true;
+        for (char c : " \t\n\u000B\f\r".toCharArray()) whitespaceChars[c] = true;
+    }
 
     public static boolean isTag(String item) {
-        if (item != null && Arrays.stream(specialCaseWordTags).anyMatch(re -> item.startsWith(re))) {
+        return item != null && isTag(item, 0, item.length());
+    }
+    // ^\s*<[^>]+>\s*$ unless it is a special case word tag
+    public static boolean isTag(CharSequence text, int start, int end) {
+        if (isSpecialCaseWordTag(text, start, end)) {
             return false;
         }
-        return isOpeningTag(item) || isClosingTag(item);
-    }
-    private static boolean isOpeningTag(String item) {
-        return item != null && openingTagRegex.matcher(item).matches();
+        while (start < end && isRegexWhiteSpace(text.charAt(start))) start++;
+        while (end > start && isRegexWhiteSpace(text.charAt(end - 1))) end--;
+        if (end - start < 3 || text.charAt(start) != '<' || text.charAt(end - 1) != '>') {
+            return false;
+        }
+        for (int i = start + 1; i < end - 1; i++) {
+            if (text.charAt(i) == '>') return false;
+        }
+        return true;
     }
-    private static boolean isClosingTag(String item) {
-        return item != null && closingTagTexRegex.matcher(item).matches();
+    public static boolean isSpecialCaseWordTag(CharSequence text, int start, int end) {
+        for (String wordTag : specialCaseWordTags) {
+            if (regionEquals(text, start, Math.min(end, start + wordTag.length()), wordTag)) return true;
+        }
+        return false;
     }
     public static boolean isStartOfTag(char val) {
         return val == '<';
@@ -621,19 +950,35 @@ public class CustomHtmlDiff {
         return val == ';';
     }
     public static boolean isWhiteSpace(String value) {
-        return whitespaceRegex.matcher(value).matches();
+        return isWhiteSpace(value, 0, value.length());
+    }
+    // ^(\s|&nbsp;)+$
+    public static boolean isWhiteSpace(CharSequence text, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+        int i = start;
+        while (i < end) {
+            if (isRegexWhiteSpace(text.charAt(i))) i++;
+            else if (regionEquals(text, i, Math.min(end, i + 6), "&nbsp;")) i += 6;
+            else return false;
+        }
+        return true;
     }
     public static boolean isWhiteSpace(char value) {
         return Character.isWhitespace(value);
     }
     public static boolean isWord(char text) {
-        return wordRegex.matcher(String.valueOf(text)).matches();
+        return text < 128 && wordChars[text];
+    }
+    private static boolean isRegexWhiteSpace(char value) {
+        return value < 128 && whitespaceChars[value];
     }
 
     public static String stripTagAttributes(String word) {
-        Matcher matcher = tagWordRegex.matcher(word);
-        if (matcher.find()) {
-            String tag = matcher.group();
+        int tagWordStart = tagWordStart(word, 0, word.length());
+        if (tagWordStart >= 0) {
+            String tag = word.substring(tagWordStart, tagWordEnd(word, tagWordStart, word.length()));
             word = tag + (word.endsWith("/>") ? "/>" : ">");
         }
         return word;
@@ -644,6 +989,21 @@ public class CustomHtmlDiff {
         }
         return word;
     }
+    // start of the first <[^\s>]+ run, or -1
+    static int tagWordStart(CharSequence text, int start, int end) {
+        for (int i = start; i < end - 1; i++) {
+            if (text.charAt(i) == '<' && isTagWordChar(text.charAt(i + 1))) return i;
+        }
+        return -1;
+    }
+    static int tagWordEnd(CharSequence text, int tagWordStart, int end) {
+        int i = tagWordStart + 1;
+        while (i < end && isTagWordChar(text.charAt(i))) i++;
+        return i;
+    }
+    private static boolean isTagWordChar(char value) {
+        return value != '>' && !isRegexWhiteSpace(value);
+    }
 
     public static String wrapText(String text, String tagName, String cssClass) {
         return String.format("<%s class='%s'>%s</%s>", tagName, cssClass, text, tagName);
@@ -652,23 +1012,67 @@ public class CustomHtmlDiff {
         if (word == null) {
             return "";
         }
-        Matcher matcher = tagRegex.matcher(word);
-        return matcher.find() ? matcher.group("name").toLowerCase() : "";
+        int nameStart = tagNameStart(word, 0, word.length());
+        return nameStart >= 0 ? word.substring(nameStart, tagNameEnd(word, nameStart, word.length())).toLowerCase() : "";
     }
-
-    private String listToString(List<Character> list) {
-        StringBuilder sb = new StringBuilder(list.size());
-        for (Character ch : list) {
-            sb.append(ch);
+    // start of the name group of the first </?([^\s/>]+)[^>]*> match, or -1
+    static int tagNameStart(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) != '<') continue;
+            int nameStart = (i + 1 < end && text.charAt(i + 1) == '/') ? i + 2 : i + 1;
+            int nameEnd = tagNameEnd(text, nameStart, end);
+            if (nameEnd == nameStart) continue;
+            for (int j = nameEnd; j < end; j++) {
+                if (text.charAt(j) == '>') return nameStart;
+            }
+        }
+        return -1;
+    }
+    static int tagNameEnd(CharSequence text, int nameStart, int end) {
+        int i = nameStart;
+        while (i < end && text.charAt(i) != '/' && isTagWordChar(text.charAt(i))) i++;
+        return i;
+    }
+    // <(strong|b|...|span)[>\s]+ matched case-insensitively
+    static boolean isSpecialCaseOpeningTag(CharSequence text, int start, int end) {
+        if (end - start < 3 || text.charAt(start) != '<') {
+            return false;
+        }
+        int nameEnd = start + 1;
+        while (nameEnd < end && isTagWordChar(text.charAt(nameEnd))) nameEnd++;
+        if (nameEnd == end) {
+            return false;
+        }
+        for (int i = nameEnd; i < end; i++) {
+            if (isTagWordChar(text.charAt(i))) return false;
+        }
+        for (String name : specialCaseOpeningTagNames) {
+            if (regionEqualsIgnoreCase(text, start + 1, nameEnd, name)) return true;
+        }
+        return false;
+    }
+    static boolean isSpecialCaseClosingTag(CharSequence text, int start, int end) {
+        for (String closingTag : specialCaseClosingTags) {
+            if (regionEquals(text, start, end, closingTag)) return true;
+        }
+        return false;
+    }
+    private static boolean regionEquals(CharSequence text, int start, int end, String value) {
+        if (end - start != value.length()) return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (text.charAt(start + i) != value.charAt(i)) return false;
         }
-        return sb.toString();
+        return true;
     }
-    private List<Character> stringToList(String str) {
-        List<Character> list = new ArrayList<>();
-        for (char ch : str.toCharArray()) {
-            list.add(ch);
+    // ascii only, like Pattern.CASE_INSENSITIVE without UNICODE_CASE
+    private static boolean regionEqualsIgnoreCase(CharSequence text, int start, int end, String value) {
+        if (end - start != value.length()) return false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = text.charAt(start + i);
+            if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            if (c != value.charAt(i)) return false;
         }
-        return list;
+        return true;
     }
 
     // types
@@ -737,6 +1141,42 @@ public class CustomHtmlDiff {
         public int getEndInNew() {return startInNew + size;}
     }
 
+    // pending work of findMatches: a range still to search, or a found match waiting to be emitted
+    private static final class MatchRange {
+        private final int startInOld;
+        private final int endInOld;
+        private final int startInNew;
+        private final int endInNew;
+        private final Match match;
+        // frames of a range searched on the pool
+        private final ForkJoinTask<List<MatchRange>> task;
+
+        MatchRange(int startInOld, int endInOld, int startInNew, int endInNew) {
+            this(startInOld, endInOld, startInNew, endInNew, null, null);
+        }
+
+        MatchRange(Match match) {
+            this(0, 0, 0, 0, match, null);
+        }
+
+        MatchRange(ForkJoinTask<List<MatchRange>> task) {
+            this(0, 0, 0, 0, null, task);
+        }
+
+        private MatchRange(int startInOld, int endInOld, int startInNew, int endInNew, Match match, ForkJoinTask<List<MatchRange>> task) {
+            this.startInOld = startInOld;
+            this.endInOld = endInOld;
+            this.startInNew = startInNew;
+            this.endInNew = endInNew;
+            this.match = match;
+            this.task = task;
+        }
+
+        int size() {
+            return endInOld - startInOld + endInNew - startInNew;
+        }
+    }
+
     public static class MatchOptions {
         private int blockSize;
         private double repeatingWordsAccuracy;
@@ -762,6 +1202,13 @@ public class CustomHtmlDiff {
         public void setIgnoreWhitespaceDifferences(boolean ignoreWhitespaceDifferences) {this.ignoreWhitespaceDifferences = ignoreWhitespaceDifferences;}
     }
 
+    public enum MatchStrategy {
+        // posting lists per block size, tried from granularity down to single tokens
+        BLOCK_INDEX,
+        // suffix automaton over the new range, linear per findMatch
+        SUFFIX_AUTOMATON
+    }
+
     public enum Action {
         INSERT, DELETE, EQUAL, NONE, REPLACE
     }
@@ -0,0 +1,225 @@
+package com.timeline.api;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.timeline.api.CustomHtmlDiff.MatchStrategy;
+
+// CustomHtmlDiff results keyed by the SHA-256 of both pages and the options that change the output, bounded by
+// the bytes the results retain. the keys are spread over stripes that each hold an LRU list under their own
+// lock, so concurrent readers of different pairs rarely wait on each other
+public class DiffCache {
+    private static final int MaxStripes = 16;
+    // budget of a stripe at least, so small caches use fewer stripes instead of ones too small for a diff
+    private static final long MinStripeBytes = 1L << 20;
+    // key, entry and map node bytes kept besides the diff itself
+    private static final int EntryOverhead = 192;
+
+    private final long maxBytes;
+    private final Stripe[] stripes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // options
+    private volatile MatchStrategy matchStrategy = MatchStrategy.BLOCK_INDEX;
+    private volatile boolean trimCommonEnds;
+
+    public DiffCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        int count = (int) Math.min(MaxStripes, Long.highestOneBit(Math.max(1, maxBytes / MinStripeBytes)));
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) stripes[i] = new Stripe(maxBytes / count);
+    }
+
+    // the cached diff, built and cached on a miss. two threads missing the same pair at once both build it
+    public String diff(String html1, String html2) {
+        Key key = new Key(sha256(html1), sha256(html2), matchStrategy, trimCommonEnds);
+        Stripe stripe = stripes[(key.hashCode() ^ (key.hashCode() >>> 16)) & (stripes.length - 1)];
+
+        String diffHtml = stripe.get(key);
+        if (diffHtml != null) {
+            hits.increment();
+            return diffHtml;
+        }
+        misses.increment();
+
+        CustomHtmlDiff diff = new CustomHtmlDiff(html1, html2);
+        diff.setMatchStrategy(key.matchStrategy);
+        diff.setTrimCommonEnds(key.trimCommonEnds);
+        diffHtml = diff.build();
+        stripe.put(key, diffHtml);
+        return diffHtml;
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) stripe.clear();
+    }
+
+    public void setMatchStrategy(MatchStrategy matchStrategy) {
+        this.matchStrategy = matchStrategy;
+    }
+    public void setTrimCommonEnds(boolean trimCommonEnds) {
+        this.trimCommonEnds = trimCommonEnds;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+    public long getMisses() {
+        return misses.sum();
+    }
+    public long getEvictions() {
+        return evictions.sum();
+    }
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    public long getRetainedBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) bytes += stripe.retainedBytes();
+        return bytes;
+    }
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) size += stripe.size();
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "DiffCache{hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions() +
+                ", size=" + size() + ", retainedBytes=" + getRetainedBytes() + "}";
+    }
+
+    static long entryBytes(String diffHtml) {
+        return 2L * diffHtml.length() + EntryOverhead;
+    }
+
+    // hashes the chars two bytes at a time through a small buffer instead of encoding a copy of the page
+    static byte[] sha256(String text) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[8192];
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            buffer[length++] = (byte) (c >>> 8);
+            buffer[length++] = (byte) c;
+            if (length == buffer.length) {
+                digest.update(buffer, 0, length);
+                length = 0;
+            }
+        }
+        digest.update(buffer, 0, length);
+        return digest.digest();
+    }
+
+    // one LRU list and its share of the byte budget
+    private class Stripe {
+        private final long maxBytes;
+        private final LinkedHashMap<Key, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+
+        Stripe(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized String get(Key key) {
+            return entries.get(key);
+        }
+
+        // a diff larger than the whole stripe is not kept
+        synchronized void put(Key key, String diffHtml) {
+            long size = entryBytes(diffHtml);
+            if (size > maxBytes) return;
+
+            String previous = entries.put(key, diffHtml);
+            if (previous != null) bytes -= entryBytes(previous);
+            bytes += size;
+
+            Iterator<Map.Entry<Key, String>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes) {
+                bytes -= entryBytes(eldest.next().getValue());
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            bytes = 0;
+        }
+
+        synchronized long retainedBytes() {
+            return bytes;
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    // a SHA-256 usable as a map key
+    static final class Hash {
+        private final byte[] bytes;
+        private final int hashCode;
+
+        Hash(byte[] bytes) {
+            this.bytes = bytes;
+            this.hashCode = Arrays.hashCode(bytes);
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Hash && Arrays.equals(bytes, ((Hash) other).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class Key {
+        private final byte[] hash1;
+        private final byte[] hash2;
+        private final MatchStrategy matchStrategy;
+        private final boolean trimCommonEnds;
+        private final int hashCode;
+
+        Key(byte[] hash1, byte[] hash2, MatchStrategy matchStrategy, boolean trimCommonEnds) {
+            this.hash1 = hash1;
+            this.hash2 = hash2;
+            this.matchStrategy = matchStrategy;
+            this.trimCommonEnds = trimCommonEnds;
+            this.hashCode = 31 * (31 * (31 * Arrays.hashCode(hash1) + Arrays.hashCode(hash2)) + matchStrategy.ordinal()) + Boolean.hashCode(trimCommonEnds);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            return Arrays.equals(hash1, key.hash1) && Arrays.equals(hash2, key.hash2) &&
+                    matchStrategy == key.matchStrategy && trimCommonEnds == key.trimCommonEnds;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.timeline.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.timeline.api.CustomHtmlDiff.Operation;
+
+// tokens in, operations out. operations cover both token lists in order: EQUAL runs, and DELETE, INSERT or
+// REPLACE for each run of changed tokens between them
+public interface DiffEngine {
+    default List<Operation> diff(List<String> tokens1, List<String> tokens2) {
+        return run(tokens1, tokens2).getOperations();
+    }
+
+    // the operations together with whether a limit cut the search short
+    Result run(List<String> tokens1, List<String> tokens2);
+
+    EngineKind getKind();
+
+    // the tokens CustomHtmlDiff works on, so every engine sees the same input
+    static List<String> tokenize(String html) {
+        TokenList tokens = new HtmlTokenizer().tokenize(html);
+        List<String> result = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) result.add(tokens.get(i));
+        return result;
+    }
+
+    // CustomHtmlDiff's block index matcher, the operations its build() renders
+    static DiffEngine custom() {
+        return new CustomDiffEngine();
+    }
+
+    // linear space Myers, minimal edit scripts for any size
+    static DiffEngine myers() {
+        return new ScriptDiffEngine(EngineKind.MYERS, (tokens1, tokens2, ids1, ids2) -> new ScriptDiffEngine.Steps(MyersDiff.diff(ids1, ids2), false));
+    }
+
+    // splits around rare tokens first, falls back to Myers where no anchor is left
+    static DiffEngine histogram() {
+        return new ScriptDiffEngine(EngineKind.HISTOGRAM, (tokens1, tokens2, ids1, ids2) -> new ScriptDiffEngine.Steps(new HistogramDiff(ids1, ids2, 0, 0).run(), false));
+    }
+
+    // bit-parallel longest common subsequence
+    static DiffEngine lcs() {
+        return new ScriptDiffEngine(EngineKind.LCS, (tokens1, tokens2, ids1, ids2) -> new ScriptDiffEngine.Steps(BitParallelLcs.script(ids1, ids2), false));
+    }
+
+    // equal blocks are matched by hash, Myers only runs over the changed blocks
+    static DiffEngine blockHash() {
+        return new ScriptDiffEngine(EngineKind.BLOCK_HASH, (tokens1, tokens2, ids1, ids2) -> new ScriptDiffEngine.Steps(BlockAligner.script(tokens1, tokens2, ids1, ids2, MyersDiff::diff), false));
+    }
+
+    // Myers that replaces what is left as one block past maxEditDistance edits or timeBudgetMillis, 0 for no limit
+    static DiffEngine bounded(int maxEditDistance, long timeBudgetMillis) {
+        return new ScriptDiffEngine(EngineKind.BOUNDED, (tokens1, tokens2, ids1, ids2) -> {
+            long deadline = timeBudgetMillis > 0 ? System.nanoTime() + timeBudgetMillis * 1_000_000 : 0;
+            MyersDiff diff = new MyersDiff(ids1, ids2, maxEditDistance, deadline);
+            byte[] script = diff.run();
+            return new ScriptDiffEngine.Steps(script, diff.fellBack());
+        });
+    }
+
+    // picks one of the engines above per call
+    static AdaptiveDiffEngine adaptive() {
+        return new AdaptiveDiffEngine();
+    }
+
+    // the operations of one diff. fellBack is true when a limit was hit and the operations past it replace the
+    // rest as one block instead of a minimal edit script
+    class Result {
+        private final List<Operation> operations;
+        private final boolean fellBack;
+
+        Result(List<Operation> operations, boolean fellBack) {
+            this.operations = operations;
+            this.fellBack = fellBack;
+        }
+
+        public List<Operation> getOperations() {
+            return operations;
+        }
+        public boolean isFellBack() {
+            return fellBack;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.timeline.api;
+
+// sizes recorded by the last CustomHtmlDiff.build(), all counts are tokens
+public class DiffMetrics {
+    private int tokensInOld;
+    private int tokensInNew;
+    private int trimmedPrefix;
+    private int trimmedSuffix;
+
+    void reset() {
+        tokensInOld = 0;
+        tokensInNew = 0;
+        trimmedPrefix = 0;
+        trimmedSuffix = 0;
+    }
+
+    public int getTokensInOld() {
+        return tokensInOld;
+    }
+    void setTokensInOld(int tokensInOld) {
+        this.tokensInOld = tokensInOld;
+    }
+    public int getTokensInNew() {
+        return tokensInNew;
+    }
+    void setTokensInNew(int tokensInNew) {
+        this.tokensInNew = tokensInNew;
+    }
+    // shared leading tokens emitted as equal text without matching
+    public int getTrimmedPrefix() {
+        return trimmedPrefix;
+    }
+    void setTrimmedPrefix(int trimmedPrefix) {
+        this.trimmedPrefix = trimmedPrefix;
+    }
+    // shared trailing tokens emitted as equal text without matching
+    public int getTrimmedSuffix() {
+        return trimmedSuffix;
+    }
+    void setTrimmedSuffix(int trimmedSuffix) {
+        this.trimmedSuffix = trimmedSuffix;
+    }
+    // tokens of the old and new window that went through match discovery
+    public int getMatchedWindowInOld() {
+        return tokensInOld - trimmedPrefix - trimmedSuffix;
+    }
+    public int getMatchedWindowInNew() {
+        return tokensInNew - trimmedPrefix - trimmedSuffix;
+    }
+
+    @Override
+    public String toString() {
+        return "DiffMetrics{tokensInOld=" + tokensInOld + ", tokensInNew=" + tokensInNew +
+                ", trimmedPrefix=" + trimmedPrefix + ", trimmedSuffix=" + trimmedSuffix + "}";
+    }
+}
@@ -76,32 +76,14 @@ public class DynamicHtmlDiff {
     }
 
     public static List<String> computeLCS(List<String> X, List<String> Y) {
-        int m = X.size();
-        int n = Y.size();
-        int[][] L = new int[m + 1][n + 1];
-
-        for (int i = 1; i <= m; i++) {
-            for (int j = 1; j <= n; j++) {
-                if (X.get(i - 1).equals(Y.get(j - 1))) {
-                    L[i][j] = L[i - 1][j - 1] + 1;
-                } else {
-                    L[i][j] = Math.max(L[i - 1][j], L[i][j - 1]);
-                }
-            }
-        }
-
-        List<String> lcs = new ArrayList<>();
-        int i = m, j = n;
-        while (i > 0 && j > 0) {
-            if (X.get(i - 1).equals(Y.get(j - 1))) {
-                lcs.add(0, X.get(i - 1));
-                i--;
-                j--;
-            } else if (L[i - 1][j] > L[i][j - 1]) {
-                i--;
-            } else {
-                j--;
-            }
+        TokenDictionary dictionary = new TokenDictionary();
+        int[] ids1 = dictionary.intern(X);
+        int[] ids2 = dictionary.intern(Y);
+        int[] indices = BitParallelLcs.lcs(ids1, ids2);
+
+        List<String> lcs = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            lcs.add(X.get(index));
         }
         return lcs;
     }
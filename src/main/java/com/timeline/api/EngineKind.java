@@ -0,0 +1,6 @@
+package com.timeline.api;
+
+// the engines behind DiffEngine, as chosen by the adaptive engine and reported in its selections
+public enum EngineKind {
+    CUSTOM, MYERS, HISTOGRAM, LCS, BLOCK_HASH, BOUNDED, ADAPTIVE
+}
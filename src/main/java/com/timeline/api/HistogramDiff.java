@@ -0,0 +1,205 @@
+package com.timeline.api;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+// histogram diff over token ids: a range is split around the common region anchored on the token that occurs
+// least often in the old range, so frequent tokens such as " " and </p> never pull the alignment. ranges
+// without such an anchor fall back to the linear space Myers
+class HistogramDiff {
+    // tokens occurring more often than this in a range are never used as anchors
+    private static final int MaxChainLength = 64;
+
+    private final int[] ids1;
+    private final int[] ids2;
+    private final int maxEditDistance;
+    private final long deadline;
+    // occurrences and occurrence chain of each id in the old range being split
+    private final int[] counts;
+    private final int[] heads;
+    private final int[] next;
+    private byte[] script;
+    private int length;
+    private boolean fellBack;
+
+    HistogramDiff(int[] ids1, int[] ids2, int maxEditDistance, long deadline) {
+        this.ids1 = ids1;
+        this.ids2 = ids2;
+        this.maxEditDistance = maxEditDistance;
+        this.deadline = deadline;
+
+        int maxId = -1;
+        for (int id : ids1) maxId = Math.max(maxId, id);
+        for (int id : ids2) maxId = Math.max(maxId, id);
+        this.counts = new int[maxId + 1];
+        this.heads = new int[maxId + 1];
+        Arrays.fill(heads, -1);
+        this.next = new int[ids1.length];
+        this.script = new byte[Math.max(ids1.length, ids2.length) + 16];
+    }
+
+    // one MyersDiff step per token, walking ids1 and ids2 from the start
+    byte[] run() {
+        // ranges still to split and equal runs waiting to be emitted, so the output stays in document order
+        Deque<Frame> work = new ArrayDeque<>();
+        work.push(new Frame(0, ids1.length, 0, ids2.length));
+
+        while (!work.isEmpty()) {
+            Frame frame = work.pop();
+            if (frame.equal > 0) {
+                emit(MyersDiff.EQUAL, frame.equal);
+            } else {
+                split(frame, work);
+            }
+        }
+        return Arrays.copyOf(script, length);
+    }
+
+    // true when a limit was hit and part of the script is a block replacement rather than a minimal edit
+    boolean fellBack() {
+        return fellBack;
+    }
+
+    private void split(Frame frame, Deque<Frame> work) {
+        int startInOld = frame.startInOld;
+        int endInOld = frame.endInOld;
+        int startInNew = frame.startInNew;
+        int endInNew = frame.endInNew;
+
+        int prefix = 0;
+        while (startInOld + prefix < endInOld && startInNew + prefix < endInNew && ids1[startInOld + prefix] == ids2[startInNew + prefix]) prefix++;
+        emit(MyersDiff.EQUAL, prefix);
+        startInOld += prefix;
+        startInNew += prefix;
+
+        int suffix = 0;
+        while (startInOld < endInOld - suffix && startInNew < endInNew - suffix && ids1[endInOld - 1 - suffix] == ids2[endInNew - 1 - suffix]) suffix++;
+        endInOld -= suffix;
+        endInNew -= suffix;
+        if (suffix > 0) work.push(Frame.equal(suffix));
+
+        if (startInOld == endInOld || startInNew == endInNew) {
+            emit(MyersDiff.DELETE, endInOld - startInOld);
+            emit(MyersDiff.INSERT, endInNew - startInNew);
+            return;
+        }
+        if (deadline != 0 && System.nanoTime() - deadline > 0) {
+            fellBack = true;
+            emit(MyersDiff.DELETE, endInOld - startInOld);
+            emit(MyersDiff.INSERT, endInNew - startInNew);
+            return;
+        }
+
+        Frame region = findRegion(startInOld, endInOld, startInNew, endInNew);
+        if (region == null) {
+            fallback(startInOld, endInOld, startInNew, endInNew);
+            return;
+        }
+
+        int size = region.endInOld - region.startInOld;
+        work.push(new Frame(region.endInOld, endInOld, region.startInNew + size, endInNew));
+        work.push(Frame.equal(size));
+        work.push(new Frame(startInOld, region.startInOld, startInNew, region.startInNew));
+    }
+
+    // common region whose rarest token is rarest in the old range, longest on ties, or null when every shared
+    // token is too frequent to anchor on
+    private Frame findRegion(int startInOld, int endInOld, int startInNew, int endInNew) {
+        for (int i = endInOld - 1; i >= startInOld; i--) {
+            int id = ids1[i];
+            next[i] = heads[id];
+            heads[id] = i;
+            counts[id]++;
+        }
+
+        Frame best = null;
+        int bestSize = 0;
+        int bestCount = MaxChainLength;
+        for (int j = startInNew; j < endInNew; ) {
+            int count = counts[ids2[j]];
+            if (count == 0 || count > MaxChainLength || count > bestCount) {
+                j++;
+                continue;
+            }
+
+            int nextInNew = j + 1;
+            for (int i = heads[ids2[j]]; i >= 0; i = next[i]) {
+                int start1 = i;
+                int start2 = j;
+                while (start1 > startInOld && start2 > startInNew && ids1[start1 - 1] == ids2[start2 - 1]) {
+                    start1--;
+                    start2--;
+                }
+                int end1 = i + 1;
+                int end2 = j + 1;
+                while (end1 < endInOld && end2 < endInNew && ids1[end1] == ids2[end2]) {
+                    end1++;
+                    end2++;
+                }
+
+                int regionCount = count;
+                for (int k = start1; k < end1; k++) regionCount = Math.min(regionCount, counts[ids1[k]]);
+                if (regionCount < bestCount || (regionCount == bestCount && end1 - start1 > bestSize)) {
+                    best = new Frame(start1, end1, start2, end2);
+                    bestSize = end1 - start1;
+                    bestCount = regionCount;
+                }
+                nextInNew = Math.max(nextInNew, end2);
+            }
+            j = nextInNew;
+        }
+
+        for (int i = startInOld; i < endInOld; i++) {
+            counts[ids1[i]] = 0;
+            heads[ids1[i]] = -1;
+        }
+        return best;
+    }
+
+    private void fallback(int startInOld, int endInOld, int startInNew, int endInNew) {
+        MyersDiff diff = new MyersDiff(Arrays.copyOfRange(ids1, startInOld, endInOld), Arrays.copyOfRange(ids2, startInNew, endInNew), maxEditDistance, deadline);
+        byte[] steps = diff.run();
+        fellBack |= diff.fellBack();
+        ensureCapacity(steps.length);
+        System.arraycopy(steps, 0, script, length, steps.length);
+        length += steps.length;
+    }
+
+    private void emit(byte step, int count) {
+        ensureCapacity(count);
+        Arrays.fill(script, length, length + count, step);
+        length += count;
+    }
+
+    private void ensureCapacity(int count) {
+        if (length + count > script.length) {
+            script = Arrays.copyOf(script, Math.max(script.length * 2, length + count));
+        }
+    }
+
+    // a range to split, or an equal run of the given size to emit
+    private static final class Frame {
+        private final int startInOld;
+        private final int endInOld;
+        private final int startInNew;
+        private final int endInNew;
+        private final int equal;
+
+        Frame(int startInOld, int endInOld, int startInNew, int endInNew) {
+            this(startInOld, endInOld, startInNew, endInNew, 0);
+        }
+
+        private Frame(int startInOld, int endInOld, int startInNew, int endInNew, int equal) {
+            this.startInOld = startInOld;
+            this.endInOld = endInOld;
+            this.startInNew = startInNew;
+            this.endInNew = endInNew;
+            this.equal = equal;
+        }
+
+        static Frame equal(int size) {
+            return new Frame(0, 0, 0, 0, size);
+        }
+    }
+}
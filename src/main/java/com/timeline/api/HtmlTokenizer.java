@@ -0,0 +1,273 @@
+package com.timeline.api;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+import com.timeline.api.CustomHtmlDiff.Mode;
+import com.timeline.api.TokenList.TokenKind;
+
+import static com.timeline.api.CustomHtmlDiff.*;
+
+// span based CHARACTER/TAG/WHITESPACE/ENTITY state machine, the current token is always [tokenStart, position).
+// the machine only looks back, so text can be fed in chunks with the state carried over between them
+public class HtmlTokenizer {
+    // chars read, or bytes decoded, per step of the streaming tokenizers
+    private static final int ChunkSize = 64 * 1024;
+
+    private Mode mode = Mode.CHARACTER;
+    private CharSequence html;
+    private TokenList tokens;
+    private int tokenStart;
+    private int position;
+    // tokens before the first one of this run when tokenizing from the middle of a page
+    private int precedingTokens;
+
+    public TokenList tokenize(CharSequence html) {
+        begin(html, html.length() / 4);
+        advance(html.length());
+        return finish();
+    }
+
+    // reads the page in chunks into off heap text, tokenizing each chunk as it arrives. reader is not closed
+    public TokenList tokenize(Reader reader) throws IOException {
+        OffHeapText text = new OffHeapText(ChunkSize);
+        char[] chunk = new char[ChunkSize];
+        begin(text, ChunkSize / 4);
+        for (int count; (count = reader.read(chunk)) >= 0; ) {
+            text.append(chunk, 0, count);
+            advance(text.length());
+        }
+        return finish();
+    }
+
+    // maps a UTF-8 file and decodes it in chunks into off heap text, malformed bytes become U+FFFD
+    public TokenList tokenize(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException(path + " is larger than 2 GB");
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            // UTF-8 never decodes to more chars than bytes
+            OffHeapText text = new OffHeapText((int) size);
+            begin(text, (int) (size / 4));
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                // a char split by the chunk end stays in bytes until the next chunk completes it
+                bytes.limit((int) Math.min(size, (long) bytes.position() + ChunkSize));
+                endOfInput = bytes.limit() == size;
+                text.decode(decoder, bytes, endOfInput);
+                advance(text.length());
+            }
+            return finish();
+        }
+    }
+
+    // tokens split elsewhere laid out one after another, one span each, classified as the machine classifies
+    // its own tokens. an empty token is an empty word
+    TokenList spans(List<String> tokens) {
+        begin(String.join("", tokens), tokens.size());
+        for (String token : tokens) {
+            int end = position + token.length();
+            if (token.isEmpty()) this.tokens.add(position, end, TokenKind.WORD, (byte) 0, position, end, -1, -1);
+            else addToken(position, end);
+            position = end;
+        }
+        return this.tokens;
+    }
+
+    // tokenizes html from start, which has to be 0 or the end of a tag token, the precedingTokens-th token of the
+    // page, until a tag token ends where stop accepts. the machine starts afresh after a tag, so the tokens of the
+    // page before start and after that end are the ones the whole page would give
+    TokenList tokenize(CharSequence html, int start, int precedingTokens, IntPredicate stop) {
+        begin(html, 16);
+        this.precedingTokens = precedingTokens;
+        this.tokenStart = start;
+        for (position = start; position < html.length(); position++) {
+            processCharacter(html.charAt(position));
+            if (mode == Mode.CHARACTER && tokenStart == position + 1 && isCurrentTokenTagEnd() && stop.test(position + 1)) {
+                return tokens;
+            }
+        }
+        return finish();
+    }
+
+    private boolean isCurrentTokenTagEnd() {
+        int size = tokens.size();
+        return size > 0 && tokens.end(size - 1) == position + 1 && tokens.endsTag(size - 1);
+    }
+
+    private void begin(CharSequence html, int expectedSize) {
+        this.html = html;
+        this.tokens = new TokenList(html, expectedSize);
+        this.mode = Mode.CHARACTER;
+        this.tokenStart = 0;
+        this.position = 0;
+        this.precedingTokens = 0;
+    }
+
+    // runs the machine up to limit, html[0, limit) must be available
+    private void advance(int limit) {
+        for (; position < limit; position++) {
+            processCharacter(html.charAt(position));
+        }
+    }
+
+    private TokenList finish() {
+        appendCurrentWordToWords();
+        return tokens;
+    }
+
+    private void processCharacter(char character) {
+        switch (mode) {
+            case CHARACTER:
+                processTextCharacter(character);
+                break;
+            case TAG:
+                processHtmlTagContinuation(character);
+                break;
+            case WHITESPACE:
+                processWhiteSpaceContinuation(character);
+                break;
+            case ENTITY:
+                processEntityContinuation(character);
+                break;
+        }
+    }
+
+    private void processTextCharacter(char character) {
+        if (isStartOfTag(character)) {
+            appendCurrentWordToWords();
+            mode = Mode.TAG;
+        } else if (isStartOfEntity(character)) {
+            appendCurrentWordToWords();
+            mode = Mode.ENTITY;
+        } else if (Character.isWhitespace(character)) {
+            appendCurrentWordToWords();
+            mode = Mode.WHITESPACE;
+        } else if (isWord(character) && (!isCurrentWordHasChars() || isWord(html.charAt(position - 1)))) {
+            // character joins the current word
+        } else {
+            appendCurrentWordToWords();
+        }
+    }
+
+    private void processEntityContinuation(char character) {
+        if (isStartOfTag(character)) {
+            appendCurrentWordToWords();
+            mode = Mode.TAG;
+        } else if (Character.isWhitespace(character)) {
+            appendCurrentWordToWords();
+            mode = Mode.WHITESPACE;
+        } else if (isEndOfEntity(character)) {
+            boolean switchToNextMode = true;
+            if (isCurrentWordHasChars()) {
+                addToken(tokenStart, position + 1);
+
+                int size = tokens.size();
+                if (precedingTokens + size > 2 && size >= 2 && tokens.kind(size - 2) == TokenKind.WHITESPACE && tokens.kind(size - 1) == TokenKind.WHITESPACE) {
+                    // merge the entity into the preceding whitespace token
+                    tokenStart = tokens.start(size - 2);
+                    tokens.removeLast(2);
+                    mode = Mode.WHITESPACE;
+                    switchToNextMode = false;
+                }
+            }
+
+            if (switchToNextMode) {
+                tokenStart = position + 1;
+                mode = Mode.CHARACTER;
+            }
+        } else if (isWord(character)) {
+            // character continues the entity
+        } else {
+            appendCurrentWordToWords();
+            mode = Mode.CHARACTER;
+        }
+    }
+
+    private void processWhiteSpaceContinuation(char character) {
+        if (isStartOfTag(character)) {
+            appendCurrentWordToWords();
+            mode = Mode.TAG;
+        } else if (isStartOfEntity(character)) {
+            appendCurrentWordToWords();
+            mode = Mode.ENTITY;
+        } else if (Character.isWhitespace(character)) {
+            // character continues the whitespace
+        } else {
+            appendCurrentWordToWords();
+            mode = Mode.CHARACTER;
+        }
+    }
+
+    private void processHtmlTagContinuation(char character) {
+        if (isEndOfTag(character)) {
+            addToken(tokenStart, position + 1);
+            tokenStart = position + 1;
+            mode = Mode.CHARACTER;
+        }
+    }
+
+    // emits [tokenStart, position) and starts the next token at position
+    private void appendCurrentWordToWords() {
+        if (isCurrentWordHasChars()) {
+            addToken(tokenStart, position);
+            tokenStart = position;
+        }
+    }
+
+    private boolean isCurrentWordHasChars() {
+        return tokenStart < position;
+    }
+
+    // classifies the token once so matching and rendering never re-run the checks
+    private void addToken(int start, int end) {
+        TokenKind kind = classify(start, end);
+        byte flags = 0;
+        int keyStart = start;
+        int keyEnd = end;
+        int nameStart = -1;
+        int nameEnd = -1;
+
+        if (isStartOfTag(html.charAt(start))) {
+            nameStart = tagNameStart(html, start, end);
+            if (nameStart >= 0) nameEnd = tagNameEnd(html, nameStart, end);
+
+            int tagWordStart = kind.isTag() ? tagWordStart(html, start, end) : -1;
+            if (tagWordStart >= 0) {
+                keyStart = tagWordStart;
+                keyEnd = tagWordEnd(html, tagWordStart, end);
+                flags |= TokenList.KEY_STRIPPED;
+                if (html.charAt(end - 2) == '/') flags |= TokenList.SELF_CLOSING_SUFFIX;
+            }
+            if (isSpecialCaseOpeningTag(html, start, end)) flags |= TokenList.SPECIAL_CASE_OPENING_TAG;
+            if (isSpecialCaseClosingTag(html, start, end)) flags |= TokenList.SPECIAL_CASE_CLOSING_TAG;
+        }
+
+        tokens.add(start, end, kind, flags, keyStart, keyEnd, nameStart, nameEnd);
+    }
+
+    private TokenKind classify(int start, int end) {
+        if (isStartOfTag(html.charAt(start))) {
+            if (isSpecialCaseWordTag(html, start, end)) return TokenKind.WORD_TAG;
+            if (!isTag(html, start, end)) return TokenKind.WORD;
+            if (html.charAt(end - 2) == '/') return TokenKind.SELF_CLOSING_TAG;
+            if (html.charAt(start + 1) == '/') return TokenKind.CLOSING_TAG;
+            return TokenKind.OPENING_TAG;
+        }
+        if (isWhiteSpace(html, start, end)) return TokenKind.WHITESPACE;
+        if (end - start > 1 && isStartOfEntity(html.charAt(start)) && isEndOfEntity(html.charAt(end - 1))) return TokenKind.ENTITY;
+        return TokenKind.WORD;
+    }
+}
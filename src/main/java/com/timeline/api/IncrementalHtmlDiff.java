@@ -0,0 +1,417 @@
+package com.timeline.api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.timeline.api.CustomHtmlDiff.Match;
+import com.timeline.api.CustomHtmlDiff.Operation;
+
+// a published page diffed against a draft that is edited a little at a time. the tree of ranges findMatches
+// searched is kept, each with its longest common run and the ranges beside it. an edit tokenizes again only the
+// text between the tags around it and looks again only at the ranges holding a changed token: there the kept run
+// still wins unless a run through the changed tokens beats it, and the ranges beside are reused. only an edit
+// inside a kept run searches its range in full, so the first keystroke at a place can cost a range search while
+// the next ones stay local. the operations and the rendered diff are the ones CustomHtmlDiff builds for the same
+// pages with its default options, under which the match of a range is always its longest common token run, or
+// with common end trimming on when that is asked for
+public class IncrementalHtmlDiff {
+    // the dictionary is rebuilt from the live tokens once it holds this many times the ids it held after the
+    // last rebuild, plus DictionarySlack so a page with few distinct tokens is not rebuilt every few edits
+    private static final int DictionaryGrowth = 2;
+    private static final int DictionarySlack = 256;
+
+    private final String html1;
+    private final TokenList tokens1;
+    private final int[] ids1;
+    // old positions of each id, ascending: positions[positionStarts[id]..positionStarts[id + 1])
+    private final int[] positionStarts;
+    private final int[] positions;
+    private TokenDictionary dictionary = new TokenDictionary();
+    // ids of both pages after the constructor or the last rebuild
+    private int liveIds;
+    private final SuffixAutomaton suffixAutomaton = new SuffixAutomaton();
+    private final boolean trimCommonEnds;
+
+    private String html2;
+    private TokenList tokens2;
+    private int[] ids2;
+    // shared ends up to the first difference, and the same ends snapped back to tags
+    private int commonPrefix;
+    private int commonSuffix;
+    private int trimmedPrefix;
+    private int trimmedSuffix;
+    private Range root;
+    private List<Operation> operations;
+
+    // work of the last edit
+    private int retokenizedTokens;
+    private long searchedTokens;
+
+    public IncrementalHtmlDiff(String html1, String html2) {
+        this(html1, html2, false);
+    }
+
+    // trimCommonEnds as in CustomHtmlDiff.setTrimCommonEnds; keeps the searched window to the edited stretch
+    public IncrementalHtmlDiff(String html1, String html2, boolean trimCommonEnds) {
+        this.html1 = html1;
+        this.trimCommonEnds = trimCommonEnds;
+        this.tokens1 = new HtmlTokenizer().tokenize(html1);
+        this.ids1 = new int[tokens1.size()];
+        intern(tokens1, ids1, 0);
+
+        int idCount = dictionary.size();
+        positionStarts = new int[idCount + 1];
+        for (int id : ids1) positionStarts[id + 1]++;
+        for (int i = 0; i < idCount; i++) positionStarts[i + 1] += positionStarts[i];
+        positions = new int[ids1.length];
+        int[] next = Arrays.copyOf(positionStarts, idCount);
+        for (int i = 0; i < ids1.length; i++) positions[next[ids1[i]]++] = i;
+
+        this.html2 = html2;
+        this.tokens2 = new HtmlTokenizer().tokenize(html2);
+        this.ids2 = new int[tokens2.size()];
+        intern(tokens2, ids2, 0);
+        retokenizedTokens = tokens2.size();
+        liveIds = dictionary.size();
+
+        updateCommonEnds(new Edit(0, ids2.length, ids2.length));
+        trimCommonEnds();
+        root = update(null, null);
+        operations = collectOperations();
+    }
+
+    // replaces removedLength chars of the draft at offset by insertedText and brings the diff up to date
+    public void edit(int offset, int removedLength, String insertedText) {
+        if (offset < 0 || removedLength < 0 || offset + removedLength > html2.length()) {
+            throw new IndexOutOfBoundsException("edit " + offset + "+" + removedLength + " of " + html2.length());
+        }
+        String previous = html2;
+        TokenList previousTokens = tokens2;
+        int[] previousIds = ids2;
+        int shift = insertedText.length() - removedLength;
+        html2 = new StringBuilder(previous.length() + shift).append(previous, 0, offset).append(insertedText)
+                .append(previous, offset + removedLength, previous.length()).toString();
+
+        // tokenize again from the end of the last tag before the edit up to the end of the first tag after it
+        // where the old tokens end a tag too; the tokenizer starts afresh at both, so the other tokens only move
+        int from = previousTokens.tokenAt(offset);
+        while (from > 0 && !previousTokens.endsTag(from - 1)) from--;
+        int restart = from == 0 ? 0 : previousTokens.end(from - 1);
+        int editEnd = offset + insertedText.length();
+        int[] resume = {previousTokens.size()};
+        TokenList middle = new HtmlTokenizer().tokenize(html2, restart, from, end -> {
+            if (end < editEnd) return false;
+            int index = previousTokens.tokenStartingAt(end - shift);
+            if (index <= 0 || !previousTokens.endsTag(index - 1)) return false;
+            resume[0] = index;
+            return true;
+        });
+        int to = resume[0];
+
+        tokens2 = previousTokens.splice(html2, from, middle, to, shift);
+        ids2 = new int[tokens2.size()];
+        System.arraycopy(previousIds, 0, ids2, 0, from);
+        intern(middle, ids2, from);
+        System.arraycopy(previousIds, to, ids2, from + middle.size(), previousIds.length - to);
+        retokenizedTokens = middle.size();
+        searchedTokens = 0;
+
+        // tokens tokenized again to the same ids at either end of the stretch did not change
+        int start = from;
+        int oldEnd = to;
+        int newEnd = from + middle.size();
+        while (start < oldEnd && start < newEnd && previousIds[start] == ids2[start]) start++;
+        while (oldEnd > start && newEnd > start && previousIds[oldEnd - 1] == ids2[newEnd - 1]) {
+            oldEnd--;
+            newEnd--;
+        }
+        // after the comparison above, which needs the previous ids and the new ones numbered alike
+        if (dictionary.size() > DictionaryGrowth * liveIds + DictionarySlack) rebuildDictionary();
+        if (start == oldEnd && start == newEnd) return;
+
+        Edit edit = new Edit(start, oldEnd, newEnd);
+        updateCommonEnds(edit);
+        trimCommonEnds();
+        root = update(root, edit);
+        operations = collectOperations();
+    }
+
+    public String build() {
+        StringBuilder diffHtml = new StringBuilder();
+        try {
+            build(diffHtml);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return diffHtml.toString();
+    }
+
+    // renders the current diff to out, out is neither flushed nor closed
+    public void build(Appendable out) throws IOException {
+        if (html1.equals(html2)) {
+            out.append(html2);
+            return;
+        }
+        CustomHtmlDiff.render(tokens1, tokens2, operations, out);
+    }
+
+    public String getDraft() {
+        return html2;
+    }
+
+    public List<Operation> getOperations() {
+        return Collections.unmodifiableList(operations);
+    }
+
+    // tokens the last edit tokenized again
+    public int getRetokenizedTokens() {
+        return retokenizedTokens;
+    }
+
+    // old plus new tokens of the ranges the last edit searched again
+    public long getSearchedTokens() {
+        return searchedTokens;
+    }
+
+    // every edit interns the tokens it tokenized again, so words typed and deleted stay in the dictionary. the
+    // published page is interned first as in the constructor, so ids1 and the positions keep their ids and only
+    // ids2 changes; matches and ranges hold positions, never ids
+    private void rebuildDictionary() {
+        dictionary = new TokenDictionary();
+        intern(tokens1, new int[ids1.length], 0);
+        intern(tokens2, ids2, 0);
+        liveIds = dictionary.size();
+    }
+
+    TokenDictionary getDictionary() {
+        return dictionary;
+    }
+
+    private void intern(TokenList tokens, int[] ids, int offset) {
+        for (int i = 0; i < tokens.size(); i++) {
+            ids[offset + i] = dictionary.intern(tokens.source(), tokens.keyStart(i), tokens.keyEnd(i), tokens.keySuffix(i));
+        }
+    }
+
+    // only rescans when the first difference from either end is at or past the edit, or the shorter page moved
+    private void updateCommonEnds(Edit edit) {
+        if (!trimCommonEnds) return;
+        int length = Math.min(ids1.length, ids2.length);
+        if (commonPrefix >= edit.start || commonPrefix >= length) {
+            int prefix = Math.min(commonPrefix, Math.min(edit.start, length));
+            while (prefix < length && ids1[prefix] == ids2[prefix]) prefix++;
+            commonPrefix = prefix;
+        }
+
+        // counted from the ends the tokens after the edit did not move
+        int afterEdit = ids2.length - edit.newEnd;
+        if (commonSuffix >= afterEdit || commonSuffix >= length) {
+            int suffix = Math.min(commonSuffix, Math.min(afterEdit, length));
+            while (suffix < length && ids1[ids1.length - 1 - suffix] == ids2[ids2.length - 1 - suffix]) suffix++;
+            commonSuffix = suffix;
+        }
+    }
+
+    // the window of CustomHtmlDiff.trimCommonEnds
+    private void trimCommonEnds() {
+        int length = Math.min(ids1.length, ids2.length);
+        int prefix = commonPrefix;
+        while (prefix > 0 && !tokens2.isTag(prefix - 1)) prefix--;
+
+        int suffix = Math.min(commonSuffix, length - prefix);
+        while (suffix > 0 && !tokens2.isTag(ids2.length - suffix)) suffix--;
+
+        trimmedPrefix = prefix;
+        trimmedSuffix = suffix;
+    }
+
+    // the tree of the window, built from the previous tree wherever a range has a previous range that differs
+    // from it by the edit alone; without a previous tree every range is searched
+    private Range update(Range previous, Edit edit) {
+        Range top = new Range(trimmedPrefix, ids1.length - trimmedSuffix, trimmedPrefix, ids2.length - trimmedSuffix);
+        // a range of the new tree and the previous range it stands for, null when that is not known yet
+        Deque<Range[]> work = new ArrayDeque<>();
+        work.push(new Range[] {top, null});
+        // previous ranges by their old side, which no two ranges of a tree share; built on the first lookup
+        Map<Long, Range> previousRanges = null;
+
+        while (!work.isEmpty()) {
+            Range[] pair = work.pop();
+            Range range = pair[0];
+            Range old = pair[1];
+            if (old == null && previous != null) {
+                if (previousRanges == null) previousRanges = index(previous);
+                old = previousRanges.get(key(range));
+                if (old != null && !edit.corresponds(old, range)) old = null;
+            }
+
+            Match kept = old == null || old.match == null ? null : edit.map(old.match);
+            boolean reusable = old != null && (old.match == null || kept != null);
+            if (reusable && edit.touches(range)) {
+                Match changed = longestChangedRun(range, edit);
+                if (isBetter(changed, kept)) {
+                    kept = changed;
+                    reusable = false;
+                }
+            }
+            range.match = reusable ? kept : longestCommonRun(range);
+            if (range.match == null) continue;
+
+            range.left = range.startInOld < range.match.getStartInOld() && range.startInNew < range.match.getStartInNew()
+                    ? new Range(range.startInOld, range.match.getStartInOld(), range.startInNew, range.match.getStartInNew()) : null;
+            range.right = range.match.getEndInOld() < range.endInOld && range.match.getEndInNew() < range.endInNew
+                    ? new Range(range.match.getEndInOld(), range.endInOld, range.match.getEndInNew(), range.endInNew) : null;
+            if (range.left != null) work.push(new Range[] {range.left, reusable ? old.left : null});
+            if (range.right != null) work.push(new Range[] {range.right, reusable ? old.right : null});
+        }
+        return top;
+    }
+
+    private static Map<Long, Range> index(Range root) {
+        Map<Long, Range> ranges = new HashMap<>();
+        Deque<Range> work = new ArrayDeque<>();
+        work.push(root);
+        while (!work.isEmpty()) {
+            Range range = work.pop();
+            ranges.put(key(range), range);
+            if (range.left != null) work.push(range.left);
+            if (range.right != null) work.push(range.right);
+        }
+        return ranges;
+    }
+
+    private static long key(Range range) {
+        return (long) range.startInOld << 32 | range.endInOld;
+    }
+
+    // what findMatch returns for the range: ties go to the earliest end in old, then in new
+    private Match longestCommonRun(Range range) {
+        searchedTokens += range.endInOld - range.startInOld + range.endInNew - range.startInNew;
+        if (range.startInOld == range.endInOld || range.startInNew == range.endInNew) return null;
+
+        suffixAutomaton.build(ids2, range.startInNew, range.endInNew);
+        return suffixAutomaton.longestCommonRun(ids1, range.startInOld, range.endInOld);
+    }
+
+    // the longest common run of the range through a changed token, or across the place of removed ones. every
+    // run the edit created is one of these, the others were runs of the previous draft already
+    private Match longestChangedRun(Range range, Edit edit) {
+        boolean inserted = edit.newEnd > edit.start;
+        int from = Math.max(inserted ? edit.start : edit.start - 1, range.startInNew);
+        int to = Math.min(inserted ? edit.newEnd : edit.start, range.endInNew);
+        Match best = null;
+
+        for (int j = from; j < to; j++) {
+            int id = ids2[j];
+            if (id >= positionStarts.length - 1) continue;
+            int end = positionStarts[id + 1];
+            int p = Arrays.binarySearch(positions, positionStarts[id], end, range.startInOld);
+            for (p = p < 0 ? -p - 1 : p; p < end && positions[p] < range.endInOld; p++) {
+                int i = positions[p];
+                int before = 0;
+                while (i - before > range.startInOld && j - before > range.startInNew && ids1[i - before - 1] == ids2[j - before - 1]) before++;
+                // found already from the changed token before
+                if (before > 0 && j > from) continue;
+
+                int after = 1;
+                while (i + after < range.endInOld && j + after < range.endInNew && ids1[i + after] == ids2[j + after]) after++;
+                searchedTokens += before + after;
+                Match run = new Match(i - before, j - before, before + after);
+                if (isBetter(run, best)) best = run;
+            }
+        }
+        return best;
+    }
+
+    private static boolean isBetter(Match match, Match than) {
+        if (match == null) return false;
+        if (than == null) return true;
+        if (match.getSize() != than.getSize()) return match.getSize() > than.getSize();
+        if (match.getEndInOld() != than.getEndInOld()) return match.getEndInOld() < than.getEndInOld();
+        return match.getEndInNew() < than.getEndInNew();
+    }
+
+    // the matches in order as findMatches emits them, between the shared ends, and the operations over them.
+    // with OrphanMatchThreshold at 0 removeOrphans keeps every match
+    private List<Operation> collectOperations() {
+        List<Match> matches = new ArrayList<>();
+        if (trimmedPrefix > 0) matches.add(new Match(0, 0, trimmedPrefix));
+
+        Deque<Range> stack = new ArrayDeque<>();
+        Range range = root;
+        while (range != null || !stack.isEmpty()) {
+            while (range != null) {
+                stack.push(range);
+                range = range.left;
+            }
+            range = stack.pop();
+            if (range.match != null) matches.add(range.match);
+            range = range.right;
+        }
+
+        if (trimmedSuffix > 0) matches.add(new Match(ids1.length - trimmedSuffix, ids2.length - trimmedSuffix, trimmedSuffix));
+        matches.add(new Match(ids1.length, ids2.length, 0));
+        return CustomHtmlDiff.toOperations(matches);
+    }
+
+    // a range findMatches searched, its longest common run and the ranges beside the run that are not empty
+    private static final class Range {
+        private final int startInOld;
+        private final int endInOld;
+        private final int startInNew;
+        private final int endInNew;
+        private Match match;
+        private Range left;
+        private Range right;
+
+        Range(int startInOld, int endInOld, int startInNew, int endInNew) {
+            this.startInOld = startInOld;
+            this.endInOld = endInOld;
+            this.startInNew = startInNew;
+            this.endInNew = endInNew;
+        }
+    }
+
+    // the changed ids: [start, oldEnd) of the previous draft became [start, newEnd)
+    private static final class Edit {
+        private final int start;
+        private final int oldEnd;
+        private final int newEnd;
+
+        Edit(int start, int oldEnd, int newEnd) {
+            this.start = start;
+            this.oldEnd = oldEnd;
+            this.newEnd = newEnd;
+        }
+
+        // true when the new side of the range holds a changed token, or spans the place of removed ones
+        boolean touches(Range range) {
+            if (newEnd > start) return range.startInNew < newEnd && range.endInNew > start;
+            return range.startInNew < start && range.endInNew > start;
+        }
+
+        // true when the new side of range is the one of the previous range with the changed tokens in place
+        boolean corresponds(Range previous, Range range) {
+            return moves(previous.startInNew, range.startInNew) && moves(previous.endInNew, range.endInNew);
+        }
+
+        private boolean moves(int before, int after) {
+            return before <= start && after == before || before >= oldEnd && after == before + newEnd - oldEnd;
+        }
+
+        // the match of a previous range in the new draft, null when it covered changed tokens
+        Match map(Match match) {
+            if (match.getEndInNew() <= start) return match;
+            if (match.getStartInNew() >= oldEnd) return new Match(match.getStartInOld(), match.getStartInNew() + newEnd - oldEnd, match.getSize());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.timeline.api;
+
+import java.util.Arrays;
+
+// linear space Myers over token ids: the middle snake of a range splits it into two ranges with half the
+// edit distance each, so only two diagonal arrays of n + m entries are ever alive instead of one per d step
+class MyersDiff {
+    static final byte EQUAL = 0;
+    static final byte DELETE = 1;
+    static final byte INSERT = 2;
+    private static final long Cutoff = -2;
+
+    private final int[] ids1;
+    private final int[] ids2;
+    // furthest x per diagonal of the forward and the reverse search, shared by every range
+    private final int[] forward;
+    private final int[] backward;
+    private byte[] script;
+    private int length;
+    // 0 for no limit; past either limit a range is replaced as one block instead of searched further
+    private final int maxEditDistance;
+    private final long deadline;
+    private boolean fellBack;
+
+    MyersDiff(int[] ids1, int[] ids2, int maxEditDistance, long deadline) {
+        this.ids1 = ids1;
+        this.ids2 = ids2;
+        this.maxEditDistance = maxEditDistance;
+        this.deadline = deadline;
+        this.forward = new int[ids1.length + ids2.length + 2];
+        this.backward = new int[ids1.length + ids2.length + 2];
+        this.script = new byte[Math.max(ids1.length, ids2.length) + 16];
+    }
+
+    // one EQUAL, DELETE or INSERT per step, walking ids1 and ids2 from the start
+    static byte[] diff(int[] ids1, int[] ids2) {
+        return new MyersDiff(ids1, ids2, 0, 0).run();
+    }
+
+    byte[] run() {
+        compare(0, ids1.length, 0, ids2.length);
+        return Arrays.copyOf(script, length);
+    }
+
+    // true when a limit was hit and part of the script is a block replacement rather than a minimal edit
+    boolean fellBack() {
+        return fellBack;
+    }
+
+    private void compare(int startInOld, int endInOld, int startInNew, int endInNew) {
+        int prefix = 0;
+        while (startInOld + prefix < endInOld && startInNew + prefix < endInNew && ids1[startInOld + prefix] == ids2[startInNew + prefix]) prefix++;
+        emit(EQUAL, prefix);
+        startInOld += prefix;
+        startInNew += prefix;
+
+        int suffix = 0;
+        while (startInOld < endInOld - suffix && startInNew < endInNew - suffix && ids1[endInOld - 1 - suffix] == ids2[endInNew - 1 - suffix]) suffix++;
+        endInOld -= suffix;
+        endInNew -= suffix;
+
+        if (startInOld == endInOld) {
+            emit(INSERT, endInNew - startInNew);
+        } else if (startInNew == endInNew) {
+            emit(DELETE, endInOld - startInOld);
+        } else {
+            long split = middleSnake(startInOld, endInOld, startInNew, endInNew);
+            if (split == Cutoff) fellBack = true;
+            if (split < 0) {
+                emit(DELETE, endInOld - startInOld);
+                emit(INSERT, endInNew - startInNew);
+            } else {
+                int x = (int) (split >>> 32);
+                int y = (int) split;
+                compare(startInOld, x, startInNew, y);
+                compare(x, endInOld, y, endInNew);
+            }
+        }
+
+        emit(EQUAL, suffix);
+    }
+
+    // point (x << 32 | y) where the forward and the reverse search overlap, -1 when the ranges share nothing
+    // and Cutoff when a limit is hit first. both searches advance one d at a time, so they meet at half the
+    // edit distance of the range
+    private long middleSnake(int startInOld, int endInOld, int startInNew, int endInNew) {
+        int n = endInOld - startInOld;
+        int m = endInNew - startInNew;
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD;
+        int size = 2 * maxD;
+        Arrays.fill(forward, 0, size, -1);
+        Arrays.fill(backward, 0, size, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        // diagonals that ran off the edges are skipped in later rounds
+        int forwardStart = 0;
+        int forwardEnd = 0;
+        int backwardStart = 0;
+        int backwardEnd = 0;
+
+        for (int d = 0; d < maxD; d++) {
+            if (maxEditDistance > 0 && d > (maxEditDistance + 1) / 2) return Cutoff;
+            if (deadline != 0 && System.nanoTime() - deadline > 0) return Cutoff;
+
+            for (int k = -d + forwardStart; k <= d - forwardEnd; k += 2) {
+                int index = offset + k;
+                int x = k == -d || (k != d && forward[index - 1] < forward[index + 1]) ? forward[index + 1] : forward[index - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && ids1[startInOld + x] == ids2[startInNew + y]) {
+                    x++;
+                    y++;
+                }
+                forward[index] = x;
+
+                if (x > n) {
+                    forwardEnd += 2;
+                } else if (y > m) {
+                    forwardStart += 2;
+                } else if (odd) {
+                    int reverse = offset + delta - k;
+                    if (reverse >= 0 && reverse < size && backward[reverse] != -1 && x >= n - backward[reverse]) {
+                        return ((long) (startInOld + x) << 32) | (startInNew + y);
+                    }
+                }
+            }
+
+            for (int k = -d + backwardStart; k <= d - backwardEnd; k += 2) {
+                int index = offset + k;
+                int x = k == -d || (k != d && backward[index - 1] < backward[index + 1]) ? backward[index + 1] : backward[index - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && ids1[endInOld - 1 - x] == ids2[endInNew - 1 - y]) {
+                    x++;
+                    y++;
+                }
+                backward[index] = x;
+
+                if (x > n) {
+                    backwardEnd += 2;
+                } else if (y > m) {
+                    backwardStart += 2;
+                } else if (!odd) {
+                    int ahead = offset + delta - k;
+                    if (ahead >= 0 && ahead < size && forward[ahead] != -1) {
+                        int forwardX = forward[ahead];
+                        int forwardY = forwardX - (ahead - offset);
+                        if (forwardX >= n - x) {
+                            return ((long) (startInOld + forwardX) << 32) | (startInNew + forwardY);
+                        }
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void emit(byte step, int count) {
+        if (length + count > script.length) {
+            script = Arrays.copyOf(script, Math.max(script.length * 2, length + count));
+        }
+        Arrays.fill(script, length, length + count, step);
+        length += count;
+    }
+}
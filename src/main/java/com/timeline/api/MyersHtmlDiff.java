@@ -1,7 +1,6 @@
 package com.timeline.api;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 public class MyersHtmlDiff {
@@ -27,6 +26,14 @@ public class MyersHtmlDiff {
         System.out.println(diff);
     }
 
+    public static String diff(String html1, String html2) {
+        return diff(html1, html2, new MyersOptions());
+    }
+
+    public static String diff(String html1, String html2, MyersOptions options) {
+        return generateDiff(computeMyers(tokenize(html1), tokenize(html2), options));
+    }
+
     public static List<String> tokenize(String html) {
         List<String> tokens = new ArrayList<>();
         StringBuilder currentToken = new StringBuilder();
@@ -64,68 +71,14 @@ public class MyersHtmlDiff {
         return tokens;
     }
 
-    private static List<Edit> computeMyers(List<String> token1, List<String> token2) {
-        int n = token1.size();
-        int m = token2.size();
-        int max = n + m;
-        int[] v = new int[2 * max + 1];
-        List<int[]> trace = new ArrayList<>();
-
-        for (int d = 0; d <= max; d++) {
-            int[] currentV = v.clone();
-            trace.add(currentV);
-
-            for (int k = -d; k <= d; k += 2) {
-                int x;
-
-                if (k == -d || (k != d && v[max + k - 1] < v[max + k + 1])) x = v[max + k + 1];
-                else x = v[max + k - 1] + 1;
-                int y = x - k;
-
-                while (x < n && y < m && token1.get(x).equals(token2.get(y))) {
-                    x++;
-                    y++;
-                }
-
-                v[max + k] = x;
-
-                if (x >= n && y >= m) {
-                    return backtrack(trace, token1, token2, max, d);
-                }
-            }
-        }
-        return null;
+    private static List<Edit> computeMyers(List<String> tokens1, List<String> tokens2) {
+        return computeMyers(tokens1, tokens2, new MyersOptions());
     }
 
-    private static List<Edit> backtrack(List<int[]> trace, List<String> tokens1, List<String> tokens2, int max, int d) {
-        List<Edit> edits = new ArrayList<>();
-        int x = tokens1.size();
-        int y = tokens2.size();
-
-        for (int i = d; i >= 0; i--) {
-            int[] currentV = trace.get(i);
-            int k = x - y;
-            int prevK = (k == -i || (k != i && currentV[max + k - 1] < currentV[max + k + 1])) ? k + 1 : k - 1;
-
-            int prevX = currentV[max + prevK];
-            int prevY = prevX - prevK;
-
-            while (x > prevX && y > prevY) {
-                edits.add(new Edit(Operation.EQUAL, tokens1.get(--x)));
-                y--;
-            }
-
-            if (i > 0) {
-                if (x > prevX) {
-                    edits.add(new Edit(Operation.DELETE, tokens1.get(--x)));
-                } else if (y > prevY) {
-                    edits.add(new Edit(Operation.INSERT, tokens2.get(--y)));
-                }
-            }
-        }
-
-        Collections.reverse(edits);
-        return edits;
+    private static List<Edit> computeMyers(List<String> tokens1, List<String> tokens2, MyersOptions options) {
+        return MyersScript.toEdits(new MyersScript(options).run(tokens1, tokens2), tokens1, tokens2,
+                text -> new Edit(Operation.EQUAL, text), text -> new Edit(Operation.DELETE, text),
+                text -> new Edit(Operation.INSERT, text));
     }
 
     private static String generateDiff(List<Edit> edits) {
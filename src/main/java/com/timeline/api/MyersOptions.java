@@ -0,0 +1,45 @@
+package com.timeline.api;
+
+// how MyersHtmlDiff and NewHtmlDiff compute their edit lists, passed with every call
+public class MyersOptions {
+    // true computes the edit list in O(n + m) memory instead of keeping every v array of the trace
+    private boolean linearSpace;
+    // true aligns block level elements first and only token diffs the blocks that changed
+    private boolean blockLevel;
+    // true anchors on the rarest shared tokens (histogram diff) instead of running Myers over every token
+    private boolean histogram;
+    // edit distance and time after which the diff settles for a non minimal result, 0 for no limit
+    private int maxEditDistance;
+    private long timeBudgetMillis;
+
+    public boolean isLinearSpace() {
+        return linearSpace;
+    }
+    public void setLinearSpace(boolean linearSpace) {
+        this.linearSpace = linearSpace;
+    }
+    public boolean isBlockLevel() {
+        return blockLevel;
+    }
+    public void setBlockLevel(boolean blockLevel) {
+        this.blockLevel = blockLevel;
+    }
+    public boolean isHistogram() {
+        return histogram;
+    }
+    public void setHistogram(boolean histogram) {
+        this.histogram = histogram;
+    }
+    public int getMaxEditDistance() {
+        return maxEditDistance;
+    }
+    public void setMaxEditDistance(int maxEditDistance) {
+        this.maxEditDistance = maxEditDistance;
+    }
+    public long getTimeBudgetMillis() {
+        return timeBudgetMillis;
+    }
+    public void setTimeBudgetMillis(long timeBudgetMillis) {
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+}
@@ -0,0 +1,167 @@
+package com.timeline.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+// the step script of one MyersHtmlDiff or NewHtmlDiff call: the trace Myers by default, or the variant the
+// options pick, one MyersDiff step per token walking both token lists from the start
+class MyersScript {
+    private final MyersOptions options;
+    private final long deadline;
+    private boolean fellBack;
+
+    MyersScript(MyersOptions options) {
+        this.options = options;
+        this.deadline = options.getTimeBudgetMillis() > 0 ? System.nanoTime() + options.getTimeBudgetMillis() * 1_000_000 : 0;
+    }
+
+    byte[] run(List<String> tokens1, List<String> tokens2) {
+        TokenDictionary dictionary = new TokenDictionary();
+        int[] ids1 = dictionary.intern(tokens1);
+        int[] ids2 = dictionary.intern(tokens2);
+        if (options.isBlockLevel()) return BlockAligner.script(tokens1, tokens2, ids1, ids2, this::tokenScript);
+        return tokenScript(ids1, ids2);
+    }
+
+    // one edit per step, carrying the token the step consumes; each diff class makes its own edit type
+    static <E> List<E> toEdits(byte[] script, List<String> tokens1, List<String> tokens2,
+                               Function<String, E> equal, Function<String, E> delete, Function<String, E> insert) {
+        List<E> edits = new ArrayList<>(script.length);
+        int x = 0;
+        int y = 0;
+        for (byte step : script) {
+            if (step == MyersDiff.EQUAL) {
+                edits.add(equal.apply(tokens1.get(x++)));
+                y++;
+            } else if (step == MyersDiff.DELETE) {
+                edits.add(delete.apply(tokens1.get(x++)));
+            } else {
+                edits.add(insert.apply(tokens2.get(y++)));
+            }
+        }
+        return edits;
+    }
+
+    // true when a limit was hit and part of the script is a block replacement rather than a minimal edit
+    boolean fellBack() {
+        return fellBack;
+    }
+
+    private byte[] tokenScript(int[] ids1, int[] ids2) {
+        if (options.isHistogram()) {
+            HistogramDiff diff = new HistogramDiff(ids1, ids2, options.getMaxEditDistance(), deadline);
+            byte[] script = diff.run();
+            fellBack |= diff.fellBack();
+            return script;
+        }
+        if (options.isLinearSpace()) {
+            MyersDiff diff = new MyersDiff(ids1, ids2, options.getMaxEditDistance(), deadline);
+            byte[] script = diff.run();
+            fellBack |= diff.fellBack();
+            return script;
+        }
+        return traceScript(ids1, ids2);
+    }
+
+    // Myers keeping the v array of every d step, backtracked from the end
+    private byte[] traceScript(int[] ids1, int[] ids2) {
+        int n = ids1.length;
+        int m = ids2.length;
+        int max = n + m;
+        int[] v = new int[2 * max + 1];
+        List<int[]> trace = new ArrayList<>();
+
+        int limit = options.getMaxEditDistance() > 0 ? options.getMaxEditDistance() : max;
+
+        for (int d = 0; d <= max; d++) {
+            if (d > 0 && (d > limit || (deadline != 0 && System.nanoTime() - deadline > 0))) {
+                return greedyFallback(trace, v, n, m, max, d - 1);
+            }
+
+            int[] currentV = v.clone();
+            trace.add(currentV);
+
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+
+                if (k == -d || (k != d && v[max + k - 1] < v[max + k + 1])) x = v[max + k + 1];
+                else x = v[max + k - 1] + 1;
+                int y = x - k;
+
+                while (x < n && y < m && ids1[x] == ids2[y]) {
+                    x++;
+                    y++;
+                }
+
+                v[max + k] = x;
+
+                if (x >= n && y >= m) {
+                    return backtrack(trace, max, d, n, m, 0);
+                }
+            }
+        }
+        return null;
+    }
+
+    // furthest point on the last finished layer d, backtracked like a finished diff; everything after it is
+    // replaced as one block
+    private byte[] greedyFallback(List<int[]> trace, int[] v, int n, int m, int max, int d) {
+        fellBack = true;
+        int bestX = 0;
+        int bestY = 0;
+        int bestK = Integer.MIN_VALUE;
+        for (int k = -d; k <= d; k += 2) {
+            int x = v[max + k];
+            int y = x - k;
+            if (x <= n && y >= 0 && y <= m && x + y > bestX + bestY) {
+                bestX = x;
+                bestY = y;
+                bestK = k;
+            }
+        }
+
+        int rest = n - bestX + m - bestY;
+        byte[] script = bestK == Integer.MIN_VALUE ? new byte[rest] : backtrack(trace, max, d, bestX, bestY, rest);
+        int length = script.length - rest;
+        Arrays.fill(script, length, length += n - bestX, MyersDiff.DELETE);
+        Arrays.fill(script, length, length += m - bestY, MyersDiff.INSERT);
+        return script;
+    }
+
+    // the steps up to (x, y), followed by room for extra steps
+    private static byte[] backtrack(List<int[]> trace, int max, int d, int x, int y, int extra) {
+        byte[] steps = new byte[x + y];
+        int length = 0;
+
+        for (int i = d; i >= 0; i--) {
+            int[] currentV = trace.get(i);
+            int k = x - y;
+            int prevK = (k == -i || (k != i && currentV[max + k - 1] < currentV[max + k + 1])) ? k + 1 : k - 1;
+
+            int prevX = currentV[max + prevK];
+            int prevY = prevX - prevK;
+
+            while (x > prevX && y > prevY) {
+                steps[length++] = MyersDiff.EQUAL;
+                x--;
+                y--;
+            }
+
+            if (i > 0) {
+                if (x > prevX) {
+                    steps[length++] = MyersDiff.DELETE;
+                    x--;
+                } else if (y > prevY) {
+                    steps[length++] = MyersDiff.INSERT;
+                    y--;
+                }
+            }
+        }
+
+        byte[] script = new byte[length + extra];
+        for (int i = 0; i < length; i++) script[i] = steps[length - 1 - i];
+        return script;
+    }
+}
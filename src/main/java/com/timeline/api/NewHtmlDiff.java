@@ -1,8 +1,6 @@
 package com.timeline.api;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 public class NewHtmlDiff {
@@ -66,86 +64,13 @@ public class NewHtmlDiff {
     }
 
     private static List<Edit> computeMyers(List<String> tokens1, List<String> tokens2) {
-        int n = tokens1.size();
-        int m = tokens2.size();
-        int max = n + m;
-        int[] v = new int[2 * max + 1];
-        List<int[]> trace = new ArrayList<>();
-
-        for (int d = 0; d <= max; d++) {
-            int[] currentV = v.clone();
-            trace.add(currentV);
-
-            for (int k = -d; k <= d; k += 2) {
-                int x;
-                if (k == -d || (k != d && v[max + k - 1] < v[max + k + 1])) x = v[max + k + 1]; // insert
-                else x = v[max + k - 1] + 1; // delete
-                int y = x - k;
-
-                while (x >= 0 && y >= 0 && x < n && y < m && tokens1.get(x).equals(tokens2.get(y))) {
-                    x++;
-                    y++;
-                }
-
-                // force path
-//                int prevXAbove = v[max + k + 1];
-//                int prevYAbove = prevXAbove - k - 1;
-//                if (prevYAbove >= 0 && prevXAbove >= 0 && prevXAbove < n && prevYAbove < m && tokens2.get(prevYAbove).equals("</p>")) {
-//                    if (!tokens1.get(prevXAbove).equals("</p>") && !tokens1.get(prevXAbove).equals("<p>")) {
-//                        continue;
-//                    }
-//                }
-//                int prevXBelow = v[max + k - 1];
-//                int prevYBelow = prevXBelow - k + 1;
-//                if (prevYBelow >= 0 && prevXBelow >= 0 && prevXBelow < n && prevYBelow < m  && tokens1.get(prevXBelow).equals("</p>")) {
-//                    if (!tokens2.get(prevYBelow).equals("</p>") && !tokens2.get(prevYBelow).equals("<p>")) {
-//                        continue;
-//                    }
-//                }
-
-                v[max + k] = x;
-
-                if (x >= n && y >= m) {
-                    return backtrack(trace, tokens1, tokens2, max, d);
-                }
-            }
-        }
-        return null;
+        return computeMyers(tokens1, tokens2, new MyersOptions());
     }
 
-    private static List<Edit> backtrack(List<int[]> trace, List<String> tokens1, List<String> tokens2, int max, int d) {
-        for (int[] v : trace) {
-            System.out.println(Arrays.toString(v));
-        }
-
-        List<Edit> edits = new ArrayList<>();
-        int x = tokens1.size();
-        int y = tokens2.size();
-
-        for (int i = d; i >= 0; i--) {
-            int[] currentV = trace.get(i);
-            int k = x - y;
-            int prevK = (k == -i || (k != i && currentV[max + k - 1] < currentV[max + k + 1])) ? k + 1 : k - 1;
-
-            int prevX = currentV[max + prevK];
-            int prevY = prevX - prevK;
-
-            while (x > prevX && y > prevY) {
-                edits.add(new Edit(Operation.EQUAL, tokens1.get(--x)));
-                y--;
-            }
-
-            if (i > 0) {
-                if (x > prevX) {
-                    edits.add(new Edit(Operation.DELETE, tokens1.get(--x)));
-                } else if (y > prevY) {
-                    edits.add(new Edit(Operation.INSERT, tokens2.get(--y)));
-                }
-            }
-        }
-
-        Collections.reverse(edits);
-        return edits;
+    private static List<Edit> computeMyers(List<String> tokens1, List<String> tokens2, MyersOptions options) {
+        return MyersScript.toEdits(new MyersScript(options).run(tokens1, tokens2), tokens1, tokens2,
+                text -> new Edit(Operation.EQUAL, text), text -> new Edit(Operation.DELETE, text),
+                text -> new Edit(Operation.INSERT, text));
     }
 
     private static String generateDiff(List<Edit> edits) {
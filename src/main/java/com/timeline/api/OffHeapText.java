@@ -0,0 +1,62 @@
+package com.timeline.api;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+
+// text held in a direct buffer, two bytes per char outside the java heap, so tokens can keep offsets into a
+// page of tens of megabytes without a String of it. direct memory is capped by -XX:MaxDirectMemorySize
+class OffHeapText implements CharSequence {
+    private CharBuffer chars;
+    private int length;
+
+    OffHeapText(int capacity) {
+        this.chars = allocate(capacity);
+    }
+
+    void append(char[] chunk, int offset, int count) {
+        ensureCapacity(length + count);
+        chars.put(length, chunk, offset, count);
+        length += count;
+    }
+
+    // decodes as much of bytes as fits a whole char; the capacity must hold every char bytes decodes to
+    void decode(CharsetDecoder decoder, ByteBuffer bytes, boolean endOfInput) {
+        CharBuffer tail = chars.duplicate();
+        tail.position(length);
+        decoder.decode(bytes, tail, endOfInput);
+        if (endOfInput) decoder.flush(tail);
+        length = tail.position();
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return chars.get(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return chars.slice(start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return chars.slice(0, length).toString();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= chars.capacity()) return;
+        CharBuffer grown = allocate(Math.max(capacity, chars.capacity() * 2));
+        grown.put(chars.slice(0, length));
+        chars = grown;
+    }
+
+    private static CharBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(Math.max(capacity, 16) * 2).asCharBuffer();
+    }
+}
@@ -0,0 +1,94 @@
+package com.timeline.api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import com.timeline.api.CustomHtmlDiff.BlockClasses;
+import com.timeline.api.CustomHtmlDiff.MatchStrategy;
+
+// one base page diffed against many candidates, a canonical page against its proposed revisions. the base is
+// tokenized, interned and grouped into block classes for every block size once; per candidate only the candidate
+// is tokenized, looked up in the base's dictionary and its blocks classified. nothing of the base is written
+// after the constructor, so any number of threads may diff candidates at once
+public class OneToManyHtmlDiff {
+    // block sizes up to CustomHtmlDiff's granularityThreshold
+    private static final int MaxBlockSize = 4;
+
+    private final TokenizedDocument base;
+    private final BlockClasses[] blockClasses;
+    private Executor executor = ForkJoinPool.commonPool();
+
+    // options
+    private MatchStrategy matchStrategy = MatchStrategy.BLOCK_INDEX;
+    private boolean trimCommonEnds;
+
+    public OneToManyHtmlDiff(String base) {
+        this.base = TokenizedDocument.of(base);
+        int[] ids = this.base.getIds();
+        this.blockClasses = new BlockClasses[MaxBlockSize + 1];
+        for (int blockSize = 1; blockSize <= MaxBlockSize; blockSize++) {
+            blockClasses[blockSize] = new BlockClasses(ids, 0, ids.length, blockSize);
+        }
+    }
+
+    public String diff(String candidate) {
+        StringBuilder diffHtml = new StringBuilder();
+        try {
+            diff(candidate, diffHtml);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return diffHtml.toString();
+    }
+
+    // base -> candidate written to out as it is rendered, out is neither flushed nor closed
+    public void diff(String candidate, Appendable out) throws IOException {
+        CustomHtmlDiff diff = new CustomHtmlDiff(base, blockClasses, tokenize(candidate));
+        diff.setMatchStrategy(matchStrategy);
+        diff.setTrimCommonEnds(trimCommonEnds);
+        diff.build(out);
+    }
+
+    // the diffs of all candidates, in order, computed on the executor
+    public List<String> diffAll(List<String> candidates) {
+        List<CompletableFuture<String>> diffs = new ArrayList<>(candidates.size());
+        for (String candidate : candidates) {
+            diffs.add(CompletableFuture.supplyAsync(() -> diff(candidate), executor));
+        }
+        List<String> results = new ArrayList<>(diffs.size());
+        for (CompletableFuture<String> future : diffs) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    // keys are only looked up in the base's dictionary, keys the base lacks get ids past it from a dictionary
+    // of the candidate's own
+    private TokenizedDocument tokenize(String candidate) {
+        TokenList tokens = new HtmlTokenizer().tokenize(candidate);
+        TokenDictionary dictionary = base.getDictionary();
+        TokenDictionary unknown = new TokenDictionary();
+        int[] ids = new int[tokens.size()];
+        for (int i = 0; i < ids.length; i++) {
+            int id = dictionary.find(tokens.source(), tokens.keyStart(i), tokens.keyEnd(i), tokens.keySuffix(i));
+            ids[i] = id >= 0 ? id : dictionary.size() + unknown.intern(tokens.source(), tokens.keyStart(i), tokens.keyEnd(i), tokens.keySuffix(i));
+        }
+        return new TokenizedDocument(tokens, ids, dictionary, DiffCache.sha256(candidate));
+    }
+
+    // runs diffAll, the common pool by default
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+    public void setMatchStrategy(MatchStrategy matchStrategy) {
+        this.matchStrategy = matchStrategy;
+    }
+    public void setTrimCommonEnds(boolean trimCommonEnds) {
+        this.trimCommonEnds = trimCommonEnds;
+    }
+}
@@ -0,0 +1,111 @@
+package com.timeline.api;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.timeline.api.CustomHtmlDiff.MatchStrategy;
+
+// the adjacent diffs of an ordered list of revisions, diff(i) being revision i -> i + 1. every revision is
+// tokenized at most once, on first use, into a handle interned by the timeline's dictionary, so the two diffs
+// around a revision share its tokens and ids
+public class RevisionTimeline implements Iterable<String> {
+    private final List<String> revisions;
+    private final TokenDictionary dictionary = new TokenDictionary();
+    private final AtomicReferenceArray<TokenizedDocument> documents;
+    private Executor executor = ForkJoinPool.commonPool();
+
+    // options
+    private MatchStrategy matchStrategy = MatchStrategy.BLOCK_INDEX;
+    private boolean trimCommonEnds;
+
+    public RevisionTimeline(List<String> revisions) {
+        this.revisions = new ArrayList<>(revisions);
+        this.documents = new AtomicReferenceArray<>(revisions.size());
+    }
+
+    // number of adjacent diffs
+    public int size() {
+        return Math.max(0, revisions.size() - 1);
+    }
+
+    public String diff(int index) {
+        if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("diff " + index + " of " + size());
+        CustomHtmlDiff diff = new CustomHtmlDiff(document(index), document(index + 1));
+        diff.setMatchStrategy(matchStrategy);
+        diff.setTrimCommonEnds(trimCommonEnds);
+        return diff.build();
+    }
+
+    // every diff, in order, computed on the executor: the revisions are tokenized in parallel first, then the pairs
+    public List<String> diffAll() {
+        List<CompletableFuture<TokenizedDocument>> tokenized = new ArrayList<>();
+        for (int i = 0; i < revisions.size(); i++) {
+            int index = i;
+            tokenized.add(CompletableFuture.supplyAsync(() -> document(index), executor));
+        }
+        CompletableFuture.allOf(tokenized.toArray(new CompletableFuture<?>[0])).join();
+
+        List<CompletableFuture<String>> diffs = new ArrayList<>();
+        for (int i = 0; i < size(); i++) {
+            int index = i;
+            diffs.add(CompletableFuture.supplyAsync(() -> diff(index), executor));
+        }
+        List<String> results = new ArrayList<>(diffs.size());
+        for (CompletableFuture<String> future : diffs) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    // the diffs from the first one on, each computed when next() asks for it
+    @Override
+    public Iterator<String> iterator() {
+        return iterator(0);
+    }
+
+    // the diffs from fromIndex on, so a page of the history only pays for the diffs it shows
+    public Iterator<String> iterator(int fromIndex) {
+        return new Iterator<String>() {
+            private int index = fromIndex;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return diff(index++);
+            }
+        };
+    }
+
+    // two threads asking for the same revision at once may both tokenize it, the first handle stored is kept
+    private TokenizedDocument document(int index) {
+        TokenizedDocument document = documents.get(index);
+        if (document == null) {
+            String html = revisions.get(index);
+            documents.compareAndSet(index, null, new TokenizedDocument(new HtmlTokenizer().tokenize(html), dictionary, DiffCache.sha256(html)));
+            document = documents.get(index);
+        }
+        return document;
+    }
+
+    // runs diffAll, the common pool by default
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+    public void setMatchStrategy(MatchStrategy matchStrategy) {
+        this.matchStrategy = matchStrategy;
+    }
+    public void setTrimCommonEnds(boolean trimCommonEnds) {
+        this.trimCommonEnds = trimCommonEnds;
+    }
+}
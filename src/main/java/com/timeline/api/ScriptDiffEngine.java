@@ -0,0 +1,78 @@
+package com.timeline.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.timeline.api.CustomHtmlDiff.Action;
+import com.timeline.api.CustomHtmlDiff.Operation;
+
+// a DiffEngine over one of the id based engines, their MyersDiff step scripts are folded into operations
+class ScriptDiffEngine implements DiffEngine {
+    private final EngineKind kind;
+    private final Script script;
+
+    ScriptDiffEngine(EngineKind kind, Script script) {
+        this.kind = kind;
+        this.script = script;
+    }
+
+    @Override
+    public Result run(List<String> tokens1, List<String> tokens2) {
+        TokenDictionary dictionary = new TokenDictionary();
+        return run(tokens1, tokens2, dictionary.intern(tokens1), dictionary.intern(tokens2));
+    }
+
+    // ids1 and ids2 interned by one dictionary
+    Result run(List<String> tokens1, List<String> tokens2, int[] ids1, int[] ids2) {
+        Steps steps = script.diff(tokens1, tokens2, ids1, ids2);
+        return new Result(toOperations(steps.script), steps.fellBack);
+    }
+
+    @Override
+    public EngineKind getKind() {
+        return kind;
+    }
+
+    static List<Operation> toOperations(byte[] steps) {
+        List<Operation> operations = new ArrayList<>();
+        int x = 0;
+        int y = 0;
+        int i = 0;
+        while (i < steps.length) {
+            int startInOld = x;
+            int startInNew = y;
+            if (steps[i] == MyersDiff.EQUAL) {
+                while (i < steps.length && steps[i] == MyersDiff.EQUAL) {
+                    x++;
+                    y++;
+                    i++;
+                }
+                operations.add(new Operation(Action.EQUAL, startInOld, x, startInNew, y));
+            } else {
+                while (i < steps.length && steps[i] != MyersDiff.EQUAL) {
+                    if (steps[i] == MyersDiff.DELETE) x++;
+                    else y++;
+                    i++;
+                }
+                Action action = x == startInOld ? Action.INSERT : y == startInNew ? Action.DELETE : Action.REPLACE;
+                operations.add(new Operation(action, startInOld, x, startInNew, y));
+            }
+        }
+        return operations;
+    }
+
+    interface Script {
+        Steps diff(List<String> tokens1, List<String> tokens2, int[] ids1, int[] ids2);
+    }
+
+    // a step script and whether a limit cut it short
+    static final class Steps {
+        private final byte[] script;
+        private final boolean fellBack;
+
+        Steps(byte[] script, boolean fellBack) {
+            this.script = script;
+            this.fellBack = fellBack;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.timeline.api;
+
+import java.util.Arrays;
+
+import com.timeline.api.CustomHtmlDiff.Match;
+
+// suffix automaton over a range of token ids, answers the longest run shared with another range in linear time.
+// instances are reused between queries so the arrays are only grown, never reallocated per call
+class SuffixAutomaton {
+    // per state
+    private int[] lengths = new int[0];
+    private int[] links = new int[0];
+    private int[] firstEnds = new int[0]; // end of the first occurrence of the state's strings, relative to start
+    private int[] edgeHeads = new int[0];
+    private int stateCount;
+    private int last;
+    // per edge, chained per state so a clone can copy the edges of its original
+    private int[] edgeSymbols = new int[0];
+    private int[] edgeTargets = new int[0];
+    private int[] edgeNext = new int[0];
+    private int edgeCount;
+    // open addressing table from (state, symbol) to edge + 1
+    private long[] slotKeys = new long[0];
+    private int[] slotEdges = new int[0];
+    private int slotMask;
+
+    private int start;
+
+    void build(int[] ids, int start, int end) {
+        this.start = start;
+        int length = Math.max(end - start, 0);
+        prepare(length);
+
+        stateCount = 0;
+        edgeCount = 0;
+        last = newState(0, -1);
+        links[last] = -1;
+        for (int i = start; i < end; i++) {
+            extend(ids[i], i - start);
+        }
+    }
+
+    // longest run of other[otherStart, otherEnd) that also occurs in the built range; ties go to the earliest
+    // end in other and then to the earliest end in the built range. null when nothing is shared
+    Match longestCommonRun(int[] other, int otherStart, int otherEnd) {
+        int state = 0;
+        int length = 0;
+        int bestLength = 0;
+        int bestEndInOther = 0;
+        int bestEnd = 0;
+
+        for (int i = otherStart; i < otherEnd; i++) {
+            int symbol = other[i];
+            int edge = findEdge(state, symbol);
+            while (state != 0 && edge < 0) {
+                state = links[state];
+                length = lengths[state];
+                edge = findEdge(state, symbol);
+            }
+            if (edge >= 0) {
+                state = edgeTargets[edge];
+                length++;
+            } else {
+                state = 0;
+                length = 0;
+            }
+
+            if (length > bestLength) {
+                bestLength = length;
+                bestEndInOther = i;
+                bestEnd = start + firstEnds[state];
+            }
+        }
+
+        return bestLength != 0 ? new Match(bestEndInOther - bestLength + 1, bestEnd - bestLength + 1, bestLength) : null;
+    }
+
+    private void extend(int symbol, int position) {
+        int current = newState(lengths[last] + 1, position);
+        int state = last;
+        while (state != -1 && findEdge(state, symbol) < 0) {
+            addEdge(state, symbol, current);
+            state = links[state];
+        }
+
+        if (state == -1) {
+            links[current] = 0;
+        } else {
+            int edge = findEdge(state, symbol);
+            int next = edgeTargets[edge];
+            if (lengths[state] + 1 == lengths[next]) {
+                links[current] = next;
+            } else {
+                int clone = newState(lengths[state] + 1, firstEnds[next]);
+                for (int e = edgeHeads[next]; e >= 0; e = edgeNext[e]) {
+                    addEdge(clone, edgeSymbols[e], edgeTargets[e]);
+                }
+                links[clone] = links[next];
+                while (state != -1 && (edge = findEdge(state, symbol)) >= 0 && edgeTargets[edge] == next) {
+                    edgeTargets[edge] = clone;
+                    state = links[state];
+                }
+                links[next] = clone;
+                links[current] = clone;
+            }
+        }
+        last = current;
+    }
+
+    private int newState(int length, int firstEnd) {
+        int state = stateCount++;
+        lengths[state] = length;
+        firstEnds[state] = firstEnd;
+        edgeHeads[state] = -1;
+        return state;
+    }
+
+    private void addEdge(int state, int symbol, int target) {
+        int edge = edgeCount++;
+        edgeSymbols[edge] = symbol;
+        edgeTargets[edge] = target;
+        edgeNext[edge] = edgeHeads[state];
+        edgeHeads[state] = edge;
+
+        long key = key(state, symbol);
+        int slot = slot(key);
+        while (slotEdges[slot] != 0) slot = (slot + 1) & slotMask;
+        slotKeys[slot] = key;
+        slotEdges[slot] = edge + 1;
+    }
+
+    private int findEdge(int state, int symbol) {
+        long key = key(state, symbol);
+        for (int slot = slot(key); ; slot = (slot + 1) & slotMask) {
+            int edge = slotEdges[slot] - 1;
+            if (edge < 0 || slotKeys[slot] == key) return edge;
+        }
+    }
+
+    private static long key(int state, int symbol) {
+        return ((long) state << 32) | (symbol & 0xffffffffL);
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & slotMask;
+    }
+
+    // a suffix automaton of n symbols has at most 2n states and 3n edges
+    private void prepare(int length) {
+        int states = 2 * length + 2;
+        int edges = 3 * length + 3;
+        if (lengths.length < states) {
+            lengths = new int[states];
+            links = new int[states];
+            firstEnds = new int[states];
+            edgeHeads = new int[states];
+        }
+        if (edgeSymbols.length < edges) {
+            edgeSymbols = new int[edges];
+            edgeTargets = new int[edges];
+            edgeNext = new int[edges];
+        }
+        int capacity = Integer.highestOneBit(edges * 2 - 1) * 2;
+        if (slotEdges.length < capacity) {
+            slotKeys = new long[capacity];
+            slotEdges = new int[capacity];
+        } else {
+            Arrays.fill(slotEdges, 0, capacity, 0);
+        }
+        slotMask = capacity - 1;
+    }
+}
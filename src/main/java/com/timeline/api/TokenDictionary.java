@@ -0,0 +1,111 @@
+package com.timeline.api;
+
+import java.util.Arrays;
+import java.util.List;
+
+// interns distinct tokens into dense int ids so the diff engines compare ints instead of strings
+public class TokenDictionary {
+    private int[] table = new int[64]; // id + 1 per slot, 0 marks an empty slot
+    private int[] hashes = new int[32];
+    private String[] tokens = new String[32];
+    private int size;
+    // the token strings, each an object and a byte array of up to two bytes per char
+    private long tokenBytes;
+
+    public int intern(String token) {
+        return intern(token, 0, token.length(), "");
+    }
+
+    // interns text[start, end) + suffix, a string is only built the first time a token is seen
+    public int intern(CharSequence text, int start, int end, String suffix) {
+        int hash = hash(text, start, end, suffix);
+        int mask = table.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < 0) {
+                return add(slot, hash, new StringBuilder(end - start + suffix.length()).append(text, start, end).append(suffix).toString());
+            }
+            if (hashes[id] == hash && matches(tokens[id], text, start, end, suffix)) {
+                return id;
+            }
+        }
+    }
+
+    // id of text[start, end) + suffix, -1 when it was never interned. only reads, so any number of threads may
+    // look up a dictionary nobody interns into anymore
+    public int find(CharSequence text, int start, int end, String suffix) {
+        int hash = hash(text, start, end, suffix);
+        int mask = table.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < 0) return -1;
+            if (hashes[id] == hash && matches(tokens[id], text, start, end, suffix)) return id;
+        }
+    }
+
+    public int[] intern(List<String> tokens) {
+        int[] result = new int[tokens.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = intern(tokens.get(i));
+        }
+        return result;
+    }
+
+    public String get(int id) {
+        return tokens[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // the table and per-id arrays at their capacity plus the token strings; not thread safe, like intern
+    long retainedBytes() {
+        return 3 * 16L + Integer.BYTES * ((long) table.length + hashes.length + tokens.length) + tokenBytes;
+    }
+
+    private int add(int slot, int hash, String token) {
+        if (size == tokens.length) {
+            tokens = Arrays.copyOf(tokens, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        tokens[id] = token;
+        tokenBytes += 40 + 2L * token.length();
+        hashes[id] = hash;
+        table[slot] = id + 1;
+        if (size * 2 > table.length) rehash();
+        return id;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = spread(hashes[id]) & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = id + 1;
+        }
+    }
+
+    // same polynomial as String.hashCode
+    private static int hash(CharSequence text, int start, int end, String suffix) {
+        int h = 0;
+        for (int i = start; i < end; i++) h = 31 * h + text.charAt(i);
+        for (int i = 0; i < suffix.length(); i++) h = 31 * h + suffix.charAt(i);
+        return h;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String token, CharSequence text, int start, int end, String suffix) {
+        int length = end - start;
+        if (token.length() != length + suffix.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (token.charAt(i) != text.charAt(start + i)) return false;
+        }
+        return token.startsWith(suffix, length);
+    }
+}
@@ -0,0 +1,209 @@
+package com.timeline.api;
+
+import java.util.Arrays;
+
+// tokens recorded as [start, end) offsets over the original text; strings are only built on demand
+public class TokenList {
+    static final byte KEY_STRIPPED = 1;
+    static final byte SPECIAL_CASE_OPENING_TAG = 2;
+    static final byte SPECIAL_CASE_CLOSING_TAG = 4;
+    static final byte SELF_CLOSING_SUFFIX = 8;
+
+    private static final TokenKind[] kindValues = TokenKind.values();
+
+    private final CharSequence source;
+    private int size;
+    private int[] starts;
+    private int[] ends;
+    private byte[] kinds;
+    private byte[] flags;
+    // stripped-attribute key: source[keyStart, keyEnd) + keySuffix
+    private int[] keyStarts;
+    private int[] keyEnds;
+    // tag name span, -1 when the token has no tag name
+    private int[] nameStarts;
+    private int[] nameEnds;
+
+    public TokenList(CharSequence source, int expectedSize) {
+        this.source = source;
+        int capacity = Math.max(expectedSize, 16);
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.kinds = new byte[capacity];
+        this.flags = new byte[capacity];
+        this.keyStarts = new int[capacity];
+        this.keyEnds = new int[capacity];
+        this.nameStarts = new int[capacity];
+        this.nameEnds = new int[capacity];
+    }
+
+    void add(int start, int end, TokenKind kind, byte flag, int keyStart, int keyEnd, int nameStart, int nameEnd) {
+        if (size == starts.length) {
+            int capacity = size * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            keyStarts = Arrays.copyOf(keyStarts, capacity);
+            keyEnds = Arrays.copyOf(keyEnds, capacity);
+            nameStarts = Arrays.copyOf(nameStarts, capacity);
+            nameEnds = Arrays.copyOf(nameEnds, capacity);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        kinds[size] = (byte) kind.ordinal();
+        flags[size] = flag;
+        keyStarts[size] = keyStart;
+        keyEnds[size] = keyEnd;
+        nameStarts[size] = nameStart;
+        nameEnds[size] = nameEnd;
+        size++;
+    }
+
+    // the eight per-token arrays at their capacity, which doubling leaves up to twice the size
+    long retainedBytes() {
+        return 8 * 16L + (6L * Integer.BYTES + 2) * starts.length;
+    }
+
+    void removeLast(int count) {
+        size -= count;
+    }
+
+    // a copy over source: tokens [0, from) of this, the tokens of middle, then tokens [to, size) of this with
+    // their offsets moved by shift. middle has to be tokenized over source already
+    TokenList splice(CharSequence source, int from, TokenList middle, int to, int shift) {
+        TokenList result = new TokenList(source, from + middle.size + size - to);
+        result.copy(this, 0, from, 0);
+        result.copy(middle, 0, middle.size, 0);
+        result.copy(this, to, size, shift);
+        return result;
+    }
+
+    private void copy(TokenList tokens, int from, int to, int shift) {
+        int count = to - from;
+        System.arraycopy(tokens.kinds, from, kinds, size, count);
+        System.arraycopy(tokens.flags, from, flags, size, count);
+        copy(tokens.starts, from, starts, size, count, shift);
+        copy(tokens.ends, from, ends, size, count, shift);
+        copy(tokens.keyStarts, from, keyStarts, size, count, shift);
+        copy(tokens.keyEnds, from, keyEnds, size, count, shift);
+        copy(tokens.nameStarts, from, nameStarts, size, count, shift);
+        copy(tokens.nameEnds, from, nameEnds, size, count, shift);
+        size += count;
+    }
+
+    // offsets are moved in a plain loop of their own so it vectorizes, -1 stays -1
+    private static void copy(int[] source, int from, int[] target, int at, int count, int shift) {
+        System.arraycopy(source, from, target, at, count);
+        if (shift == 0) return;
+        for (int i = at; i < at + count; i++) {
+            int offset = target[i];
+            target[i] = offset < 0 ? offset : offset + shift;
+        }
+    }
+
+    // true when the token was closed by its '>' in TAG mode, the tokenizer starts afresh after such a token
+    boolean endsTag(int index) {
+        return source.charAt(starts[index]) == '<' && source.charAt(ends[index] - 1) == '>';
+    }
+
+    // index of the token starting at offset, -1 when offset is inside a token or past the end
+    int tokenStartingAt(int offset) {
+        int index = tokenAt(offset);
+        return index < size && starts[index] == offset ? index : -1;
+    }
+
+    // index of the token holding offset, size when offset is at or past the end
+    int tokenAt(int offset) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] <= offset) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public CharSequence source() {
+        return source;
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int end(int index) {
+        return ends[index];
+    }
+
+    public int length(int index) {
+        return ends[index] - starts[index];
+    }
+
+    public TokenKind kind(int index) {
+        return kindValues[kinds[index]];
+    }
+
+    public boolean isTag(int index) {
+        return kind(index).isTag();
+    }
+
+    public boolean isSpecialCaseOpeningTag(int index) {
+        return (flags[index] & SPECIAL_CASE_OPENING_TAG) != 0;
+    }
+
+    public boolean isSpecialCaseClosingTag(int index) {
+        return (flags[index] & SPECIAL_CASE_CLOSING_TAG) != 0;
+    }
+
+    public int keyStart(int index) {
+        return keyStarts[index];
+    }
+
+    public int keyEnd(int index) {
+        return keyEnds[index];
+    }
+
+    public String keySuffix(int index) {
+        if ((flags[index] & KEY_STRIPPED) == 0) return "";
+        return (flags[index] & SELF_CLOSING_SUFFIX) != 0 ? "/>" : ">";
+    }
+
+    // lower-cased tag name, empty when the token has none
+    public String tagName(int index) {
+        if (nameStarts[index] < 0) return "";
+        return source.subSequence(nameStarts[index], nameEnds[index]).toString().toLowerCase();
+    }
+
+    public String get(int index) {
+        return source.subSequence(starts[index], ends[index]).toString();
+    }
+
+    public boolean equals(int index, String value) {
+        int start = starts[index];
+        int length = ends[index] - start;
+        if (length != value.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (source.charAt(start + i) != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    public void appendTo(StringBuilder out, int index) {
+        out.append(source, starts[index], ends[index]);
+    }
+
+    public enum TokenKind {
+        WORD, WHITESPACE, ENTITY, OPENING_TAG, CLOSING_TAG, SELF_CLOSING_TAG, WORD_TAG;
+
+        // word tags such as <img> are diffed like words
+        public boolean isTag() {
+            return this == OPENING_TAG || this == CLOSING_TAG || this == SELF_CLOSING_TAG;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.timeline.api;
+
+import java.util.Arrays;
+
+// a page tokenized and indexed once for any number of diffs: the token spans, kinds and stripped-attribute keys
+// of TokenList, the keys interned to ids and the SHA-256 of the page. handles interned by the same dictionary
+// share ids, so a diff between them skips tokenizing and indexing. immutable once built, safe to share
+public class TokenizedDocument {
+    private final TokenList tokens;
+    private final int[] ids;
+    private final TokenDictionary dictionary;
+    private final byte[] contentHash;
+
+    TokenizedDocument(TokenList tokens, TokenDictionary dictionary, byte[] contentHash) {
+        this.tokens = tokens;
+        this.dictionary = dictionary;
+        this.contentHash = contentHash;
+        this.ids = new int[tokens.size()];
+        // a dictionary may be shared by handles built on other threads
+        synchronized (dictionary) {
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = dictionary.intern(tokens.source(), tokens.keyStart(i), tokens.keyEnd(i), tokens.keySuffix(i));
+            }
+        }
+    }
+
+    // ids already worked out against dictionary, ids past its size standing for keys it does not hold
+    TokenizedDocument(TokenList tokens, int[] ids, TokenDictionary dictionary, byte[] contentHash) {
+        this.tokens = tokens;
+        this.ids = ids;
+        this.dictionary = dictionary;
+        this.contentHash = contentHash;
+    }
+
+    // a handle with a dictionary of its own; diffs against it intern both pages again but still skip tokenizing
+    public static TokenizedDocument of(String html) {
+        return new TokenizedDocument(new HtmlTokenizer().tokenize(html), new TokenDictionary(), DiffCache.sha256(html));
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    public byte[] getContentHash() {
+        return contentHash.clone();
+    }
+
+    boolean hasSameContent(TokenizedDocument other) {
+        return Arrays.equals(contentHash, other.contentHash);
+    }
+
+    TokenList getTokens() {
+        return tokens;
+    }
+
+    int[] getIds() {
+        return ids;
+    }
+
+    TokenDictionary getDictionary() {
+        return dictionary;
+    }
+
+    // the page at two bytes per char, the span arrays at their capacity, the ids and the hash; the dictionary is
+    // shared and left to whoever holds it
+    long retainedBytes() {
+        return 2L * tokens.source().length() + tokens.retainedBytes() + 4L * ids.length + contentHash.length + 4 * 16L + 64;
+    }
+}
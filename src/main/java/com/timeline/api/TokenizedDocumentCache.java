@@ -0,0 +1,157 @@
+package com.timeline.api;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// TokenizedDocument handles by the SHA-256 of the page, bounded by the bytes they retain and evicted least
+// recently used first. every handle is interned by the cache's dictionary, so consecutive revisions A -> B,
+// B -> C tokenize and index B once. the dictionary only grows, past maxDictionarySize distinct keys or half of
+// maxBytes a new one is started; handles of different dictionaries still diff, their keys are then interned
+// again per diff. the dictionaries count toward maxBytes for as long as a cached handle or the cache holds them
+public class TokenizedDocumentCache {
+    private final long maxBytes;
+    private final int maxDictionarySize;
+    private final LinkedHashMap<DiffCache.Hash, TokenizedDocument> documents = new LinkedHashMap<>(16, 0.75f, true);
+    // bytes of the cached handles, and of the dictionaries they and the cache hold
+    private long bytes;
+    private long dictionaryBytes;
+    private final Map<TokenDictionary, DictionaryUse> dictionaries = new IdentityHashMap<>();
+    private TokenDictionary dictionary = new TokenDictionary();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TokenizedDocumentCache(long maxBytes) {
+        this(maxBytes, 1 << 20);
+    }
+
+    public TokenizedDocumentCache(long maxBytes, int maxDictionarySize) {
+        this.maxBytes = maxBytes;
+        this.maxDictionarySize = maxDictionarySize;
+    }
+
+    // the cached handle of html, tokenized outside the cache lock on a miss
+    public TokenizedDocument get(String html) {
+        DiffCache.Hash hash = new DiffCache.Hash(DiffCache.sha256(html));
+        TokenDictionary dictionary;
+        synchronized (this) {
+            TokenizedDocument document = documents.get(hash);
+            if (document != null) {
+                hits.increment();
+                return document;
+            }
+            if (isFull(this.dictionary)) startDictionary();
+            dictionary = this.dictionary;
+        }
+        misses.increment();
+
+        TokenizedDocument document = new TokenizedDocument(new HtmlTokenizer().tokenize(html), dictionary, hash.getBytes());
+        put(hash, document);
+        return document;
+    }
+
+    // a miss grew the dictionary whether or not its handle is kept, so the growth is counted first
+    private synchronized void put(DiffCache.Hash hash, TokenizedDocument document) {
+        DictionaryUse use = use(document.getDictionary());
+        long size = document.retainedBytes();
+        if (size + use.bytes <= maxBytes) {
+            TokenizedDocument previous = documents.put(hash, document);
+            if (previous != null) release(previous);
+            bytes += size;
+            use.documents++;
+        } else {
+            releaseIfUnused(document.getDictionary(), use);
+        }
+
+        Iterator<Map.Entry<DiffCache.Hash, TokenizedDocument>> eldest = documents.entrySet().iterator();
+        while (bytes + dictionaryBytes > maxBytes && eldest.hasNext()) {
+            TokenizedDocument evicted = eldest.next().getValue();
+            eldest.remove();
+            release(evicted);
+            evictions.increment();
+        }
+        // the dictionary alone is over the bound once every handle is gone
+        if (bytes + dictionaryBytes > maxBytes) startDictionary();
+    }
+
+    // the use of dictionary with its bytes brought up to date
+    private DictionaryUse use(TokenDictionary dictionary) {
+        DictionaryUse use = dictionaries.computeIfAbsent(dictionary, key -> new DictionaryUse());
+        long current;
+        // read under the lock handles intern under, their arrays may be growing on another thread
+        synchronized (dictionary) {
+            current = dictionary.retainedBytes();
+        }
+        dictionaryBytes += current - use.bytes;
+        use.bytes = current;
+        return use;
+    }
+
+    private void release(TokenizedDocument document) {
+        bytes -= document.retainedBytes();
+        DictionaryUse use = dictionaries.get(document.getDictionary());
+        use.documents--;
+        releaseIfUnused(document.getDictionary(), use);
+    }
+
+    private void releaseIfUnused(TokenDictionary dictionary, DictionaryUse use) {
+        if (use.documents > 0 || dictionary == this.dictionary) return;
+        dictionaries.remove(dictionary);
+        dictionaryBytes -= use.bytes;
+    }
+
+    private boolean isFull(TokenDictionary dictionary) {
+        synchronized (dictionary) {
+            return dictionary.size() > maxDictionarySize || dictionary.retainedBytes() > maxBytes / 2;
+        }
+    }
+
+    private void startDictionary() {
+        TokenDictionary previous = dictionary;
+        dictionary = new TokenDictionary();
+        DictionaryUse use = dictionaries.get(previous);
+        if (use != null) releaseIfUnused(previous, use);
+    }
+
+    public synchronized void clear() {
+        documents.clear();
+        dictionaries.clear();
+        bytes = 0;
+        dictionaryBytes = 0;
+        dictionary = new TokenDictionary();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+    public long getMisses() {
+        return misses.sum();
+    }
+    public long getEvictions() {
+        return evictions.sum();
+    }
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    public synchronized long getRetainedBytes() {
+        return bytes + dictionaryBytes;
+    }
+    public synchronized int size() {
+        return documents.size();
+    }
+
+    @Override
+    public String toString() {
+        return "TokenizedDocumentCache{hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions() +
+                ", size=" + size() + ", retainedBytes=" + getRetainedBytes() + "}";
+    }
+
+    // bytes last read of a dictionary and the number of cached handles interned by it
+    private static final class DictionaryUse {
+        private long bytes;
+        private int documents;
+    }
+}
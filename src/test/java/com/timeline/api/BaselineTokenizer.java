@@ -0,0 +1,162 @@
+package com.timeline.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// the List<Character> state machine CustomHtmlDiff tokenized with before HtmlTokenizer, kept as it was so the
+// span tokenizer can be held to exactly its token boundaries
+final class BaselineTokenizer {
+    private static final Pattern whitespaceRegex = Pattern.compile("^(\\s|&nbsp;)+$");
+    private static final Pattern wordRegex = Pattern.compile("[\\w#@]+");
+
+    private enum Mode {
+        CHARACTER, TAG, WHITESPACE, ENTITY,
+    }
+
+    private Mode mode = Mode.CHARACTER;
+    private final List<Character> currentToken = new ArrayList<>();
+    private final List<String> tokens = new ArrayList<>();
+
+    static List<String> tokenize(String html) {
+        BaselineTokenizer tokenizer = new BaselineTokenizer();
+        for (var i = 0; i < html.length(); i++) {
+            tokenizer.processCharacter(html.charAt(i));
+        }
+        tokenizer.appendCurrentWordToWords();
+        return tokenizer.tokens;
+    }
+
+    private void processCharacter(char character) {
+        switch (mode) {
+            case CHARACTER:
+                processTextCharacter(character);
+                break;
+            case TAG:
+                processHtmlTagContinuation(character);
+                break;
+            case WHITESPACE:
+                processWhiteSpaceContinuation(character);
+                break;
+            case ENTITY:
+                processEntityContinuation(character);
+                break;
+        }
+    }
+
+    private void processTextCharacter(char character) {
+        if (character == '<') {
+            appendCurrentWordToWords();
+            currentToken.add('<');
+            mode = Mode.TAG;
+        } else if (character == '&') {
+            appendCurrentWordToWords();
+            currentToken.add(character);
+            mode = Mode.ENTITY;
+        } else if (Character.isWhitespace(character)) {
+            appendCurrentWordToWords();
+            currentToken.add(character);
+            mode = Mode.WHITESPACE;
+        } else if (isWord(character) && (currentToken.isEmpty() || isWord(currentToken.get(currentToken.size() - 1)))) {
+            currentToken.add(character);
+        } else {
+            appendCurrentWordToWords();
+            currentToken.add(character);
+        }
+    }
+
+    private void processEntityContinuation(char character) {
+        if (character == '<') {
+            appendCurrentWordToWords();
+            currentToken.add(character);
+            mode = Mode.TAG;
+        } else if (Character.isWhitespace(character)) {
+            appendCurrentWordToWords();
+            currentToken.add(character);
+            mode = Mode.WHITESPACE;
+        } else if (character == ';') {
+            boolean switchToNextMode = true;
+            if (!currentToken.isEmpty()) {
+                currentToken.add(character);
+                tokens.add(listToString(currentToken));
+
+                if (tokens.size() > 2 && isWhiteSpace(tokens.get(tokens.size() - 2)) && isWhiteSpace(tokens.get(tokens.size() - 1))) {
+                    String w1 = tokens.get(tokens.size() - 2);
+                    String w2 = tokens.get(tokens.size() - 1);
+                    tokens.subList(tokens.size() - 2, tokens.size()).clear();
+                    currentToken.clear();
+                    currentToken.addAll(stringToList(w1));
+                    currentToken.addAll(stringToList(w2));
+                    mode = Mode.WHITESPACE;
+                    switchToNextMode = false;
+                }
+            }
+
+            if (switchToNextMode) {
+                currentToken.clear();
+                mode = Mode.CHARACTER;
+            }
+        } else if (isWord(character)) {
+            currentToken.add(character);
+        } else {
+            appendCurrentWordToWords();
+            currentToken.add(character);
+            mode = Mode.CHARACTER;
+        }
+    }
+
+    private void processWhiteSpaceContinuation(char character) {
+        if (character == '<') {
+            appendCurrentWordToWords();
+            currentToken.add(character);
+            mode = Mode.TAG;
+        } else if (character == '&') {
+            appendCurrentWordToWords();
+            currentToken.add(character);
+            mode = Mode.ENTITY;
+        } else if (Character.isWhitespace(character)) {
+            currentToken.add(character);
+        } else {
+            appendCurrentWordToWords();
+            currentToken.add(character);
+            mode = Mode.CHARACTER;
+        }
+    }
+
+    private void processHtmlTagContinuation(char character) {
+        if (character == '>') {
+            currentToken.add(character);
+            appendCurrentWordToWords();
+            mode = Character.isWhitespace(character) ? Mode.WHITESPACE : Mode.CHARACTER;
+        } else {
+            currentToken.add(character);
+        }
+    }
+
+    private void appendCurrentWordToWords() {
+        if (!currentToken.isEmpty()) {
+            tokens.add(listToString(currentToken));
+            currentToken.clear();
+        }
+    }
+
+    private static boolean isWhiteSpace(String value) {
+        return whitespaceRegex.matcher(value).matches();
+    }
+
+    private static boolean isWord(char text) {
+        return wordRegex.matcher(String.valueOf(text)).matches();
+    }
+
+    private static String listToString(List<Character> list) {
+        StringBuilder sb = new StringBuilder(list.size());
+        for (Character ch : list) sb.append(ch);
+        return sb.toString();
+    }
+
+    private static List<Character> stringToList(String str) {
+        List<Character> list = new ArrayList<>();
+        for (char ch : str.toCharArray()) list.add(ch);
+        return list;
+    }
+}
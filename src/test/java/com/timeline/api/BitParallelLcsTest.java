@@ -0,0 +1,97 @@
+package com.timeline.api;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// the bit-parallel rows against the full L[i][j] matrix and its traceback, which computeLCS used before
+class BitParallelLcsTest {
+    @Test
+    void matchesMatrixTracebackOnRandomIds() {
+        Random random = new Random(13);
+        for (int i = 0; i < 3_000; i++) {
+            // tiny alphabets make every id dense, large ones keep them in postings; lengths cross word borders
+            int alphabet = 1 + random.nextInt(i % 3 == 0 ? 3 : 300);
+            int[] ids1 = randomIds(random, random.nextInt(i % 10 == 0 ? 400 : 70), alphabet);
+            int[] ids2 = randomIds(random, random.nextInt(i % 10 == 0 ? 400 : 70), alphabet);
+
+            int[][] expected = matrixTraceback(ids1, ids2);
+            assertArrayEquals(expected[0], BitParallelLcs.lcs(ids1, ids2));
+            assertArrayEquals(script(ids1.length, ids2.length, expected), BitParallelLcs.script(ids1, ids2));
+        }
+    }
+
+    @Test
+    void computeLcsMatchesMatrixOnPages() {
+        Random random = new Random(14);
+        for (int i = 0; i < 500; i++) {
+            String html1 = RandomDocuments.page(random, random.nextInt(120));
+            List<String> tokens1 = DynamicHtmlDiff.tokenize(html1);
+            List<String> tokens2 = DynamicHtmlDiff.tokenize(RandomDocuments.candidate(random, html1, 120));
+
+            TokenDictionary dictionary = new TokenDictionary();
+            int[] indices = matrixTraceback(dictionary.intern(tokens1), dictionary.intern(tokens2))[0];
+            List<String> expected = new ArrayList<>();
+            for (int index : indices) expected.add(tokens1.get(index));
+            assertEquals(expected, DynamicHtmlDiff.computeLCS(tokens1, tokens2));
+        }
+    }
+
+    private static int[] randomIds(Random random, int length, int alphabet) {
+        int[] ids = new int[length];
+        for (int i = 0; i < length; i++) ids[i] = random.nextInt(alphabet);
+        return ids;
+    }
+
+    // matched indices in old and in new, ascending, from the classic traceback that prefers moving up on ties
+    private static int[][] matrixTraceback(int[] ids1, int[] ids2) {
+        int m = ids1.length;
+        int n = ids2.length;
+        int[][] lengths = new int[m + 1][n + 1];
+        for (int i = 1; i <= m; i++) {
+            for (int j = 1; j <= n; j++) {
+                if (ids1[i - 1] == ids2[j - 1]) lengths[i][j] = lengths[i - 1][j - 1] + 1;
+                else lengths[i][j] = Math.max(lengths[i - 1][j], lengths[i][j - 1]);
+            }
+        }
+
+        int length = lengths[m][n];
+        int[][] matches = new int[2][length];
+        int i = m;
+        int j = n;
+        while (i > 0 && j > 0) {
+            if (ids1[i - 1] == ids2[j - 1]) {
+                length--;
+                matches[0][length] = --i;
+                matches[1][length] = --j;
+            } else if (lengths[i - 1][j] > lengths[i][j - 1]) {
+                i--;
+            } else {
+                j--;
+            }
+        }
+        return matches;
+    }
+
+    private static byte[] script(int oldLength, int newLength, int[][] matches) {
+        byte[] script = new byte[oldLength + newLength - matches[0].length];
+        int length = 0;
+        int x = 0;
+        int y = 0;
+        for (int k = 0; k < matches[0].length; k++) {
+            for (; x < matches[0][k]; x++) script[length++] = MyersDiff.DELETE;
+            for (; y < matches[1][k]; y++) script[length++] = MyersDiff.INSERT;
+            script[length++] = MyersDiff.EQUAL;
+            x++;
+            y++;
+        }
+        for (; x < oldLength; x++) script[length++] = MyersDiff.DELETE;
+        for (; y < newLength; y++) script[length++] = MyersDiff.INSERT;
+        return script;
+    }
+}
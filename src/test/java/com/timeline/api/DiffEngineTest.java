@@ -0,0 +1,121 @@
+package com.timeline.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.timeline.api.AdaptiveDiffEngine.EngineSelection;
+import com.timeline.api.CustomHtmlDiff.Action;
+import com.timeline.api.CustomHtmlDiff.Operation;
+
+// every engine covers both token lists with its operations, and a limit that cut the search short is
+// reported with the result and to the selection listener
+class DiffEngineTest {
+    @Test
+    void operationsCoverBothTokenLists() {
+        List<DiffEngine> engines = List.of(DiffEngine.custom(), DiffEngine.myers(), DiffEngine.histogram(), DiffEngine.lcs(),
+                DiffEngine.blockHash(), DiffEngine.bounded(0, 0), DiffEngine.adaptive());
+        Random random = new Random(12);
+        for (int i = 0; i < 200; i++) {
+            String html1 = RandomDocuments.page(random, random.nextInt(80));
+            List<String> tokens1 = DiffEngine.tokenize(html1);
+            List<String> tokens2 = DiffEngine.tokenize(RandomDocuments.candidate(random, html1, 80));
+            for (DiffEngine engine : engines) {
+                DiffEngine.Result result = engine.run(tokens1, tokens2);
+                // CustomHtmlDiff matches tags on their keys, without attributes
+                if (engine.getKind() == EngineKind.CUSTOM) assertCovers(tokens1.size(), tokens2.size(), result.getOperations());
+                else assertCovers(tokens1, tokens2, result.getOperations());
+                assertFalse(result.isFellBack(), engine.getKind().toString());
+            }
+        }
+    }
+
+    @Test
+    void boundedReportsFallback() {
+        List<String> tokens1 = DiffEngine.tokenize(RandomDocuments.article(new Random(1), 4_000));
+        List<String> tokens2 = DiffEngine.tokenize(RandomDocuments.article(new Random(2), 4_000));
+
+        DiffEngine.Result bounded = DiffEngine.bounded(50, 0).run(tokens1, tokens2);
+        assertCovers(tokens1, tokens2, bounded.getOperations());
+        assertTrue(bounded.isFellBack());
+        assertFalse(DiffEngine.bounded(0, 0).run(tokens1, tokens2).isFellBack());
+    }
+
+    @Test
+    void adaptiveReportsFallbackToListener() {
+        List<String> tokens1 = DiffEngine.tokenize(RandomDocuments.article(new Random(1), 4_000));
+        List<String> tokens2 = DiffEngine.tokenize(RandomDocuments.article(new Random(2), 4_000));
+
+        AdaptiveDiffEngine adaptive = DiffEngine.adaptive();
+        adaptive.setMaxEditDistance(50);
+        List<EngineSelection> selections = new ArrayList<>();
+        adaptive.setSelectionListener(selections::add);
+        DiffEngine.Result result = adaptive.run(tokens1, tokens2);
+
+        assertEquals(1, selections.size());
+        assertEquals(EngineKind.BOUNDED, selections.get(0).getEngine());
+        assertTrue(selections.get(0).isFellBack());
+        assertTrue(result.isFellBack());
+        assertCovers(tokens1, tokens2, result.getOperations());
+    }
+
+    @Test
+    void customEngineRendersLikeBuild() throws IOException {
+        Random random = new Random(16);
+        for (int i = 0; i < 300; i++) {
+            String html1 = RandomDocuments.page(random, random.nextInt(80));
+            String html2 = RandomDocuments.revise(random, html1);
+            if (html1.equals(html2)) continue;
+
+            List<Operation> operations = DiffEngine.custom().diff(DiffEngine.tokenize(html1), DiffEngine.tokenize(html2));
+            StringBuilder rendered = new StringBuilder();
+            CustomHtmlDiff.render(new HtmlTokenizer().tokenize(html1), new HtmlTokenizer().tokenize(html2), operations, rendered);
+            assertEquals(new CustomHtmlDiff(html1, html2).build(), rendered.toString(), html1 + "\n" + html2);
+        }
+    }
+
+    @Test
+    void customEngineTakesTokensTheTokenizerWouldSplit() {
+        List<String> tokens1 = List.of("<p>", "two words", " ", "&amp;", "</p>");
+        List<String> tokens2 = List.of("<p>", "two words", " ", "more", "</p>");
+        List<Operation> operations = DiffEngine.custom().diff(tokens1, tokens2);
+        assertCovers(tokens1, tokens2, operations);
+
+        List<Operation> changes = new ArrayList<>();
+        for (Operation operation : operations) if (operation.getAction() != Action.EQUAL) changes.add(operation);
+        assertEquals(1, changes.size());
+        assertEquals(Action.REPLACE, changes.get(0).getAction());
+        assertEquals(3, changes.get(0).getStartInOld());
+        assertEquals(4, changes.get(0).getEndInOld());
+    }
+
+    static void assertCovers(List<String> tokens1, List<String> tokens2, List<Operation> operations) {
+        assertCovers(tokens1.size(), tokens2.size(), operations);
+        for (Operation operation : operations) {
+            if (operation.getAction() == Action.EQUAL) {
+                assertEquals(tokens1.subList(operation.getStartInOld(), operation.getEndInOld()),
+                        tokens2.subList(operation.getStartInNew(), operation.getEndInNew()));
+            }
+        }
+    }
+
+    static void assertCovers(int tokensInOld, int tokensInNew, List<Operation> operations) {
+        int endInOld = 0;
+        int endInNew = 0;
+        for (Operation operation : operations) {
+            assertEquals(endInOld, operation.getStartInOld());
+            assertEquals(endInNew, operation.getStartInNew());
+            endInOld = operation.getEndInOld();
+            endInNew = operation.getEndInNew();
+        }
+        assertEquals(tokensInOld, endInOld);
+        assertEquals(tokensInNew, endInNew);
+    }
+}
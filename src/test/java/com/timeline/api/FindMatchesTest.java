@@ -0,0 +1,99 @@
+package com.timeline.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// the explicit stack walk of findMatches against the recursive reference, and on match trees far deeper than
+// a small stack could hold recursively
+class FindMatchesTest {
+    private static final long SmallStack = 256 * 1024;
+    private static final long LargeStack = 1L << 30;
+
+    @Test
+    void matchesRecursiveReferenceOnRandomPages() {
+        Random random = new Random(8);
+        for (int i = 0; i < 2_000; i++) {
+            String html1 = RandomDocuments.page(random, random.nextInt(60));
+            String html2 = RandomDocuments.candidate(random, html1, 60);
+            assertEquals(ReferenceDiff.build(html1, html2), untrimmed(html1, html2), html1 + "\n" + html2);
+        }
+    }
+
+    @Test
+    void defaultBuildIsUntrimmed() {
+        // common end trimming can break ties inside its window differently, so it stays opt-in
+        Random random = new Random(10);
+        for (int i = 0; i < 2_000; i++) {
+            String html1 = i % 4 == 0 ? RandomDocuments.article(random, 400) : RandomDocuments.page(random, random.nextInt(60));
+            String html2 = i % 4 == 0 ? RandomDocuments.revise(random, html1, 1 + random.nextInt(4)) : RandomDocuments.candidate(random, html1, 60);
+            assertEquals(untrimmed(html1, html2), new CustomHtmlDiff(html1, html2).build(), html1 + "\n" + html2);
+        }
+    }
+
+    @Test
+    void nestedRangesDoNotOverflowSmallStack() throws InterruptedException {
+        // equally long runs split by changed separators: the leftmost run wins every findMatch and leaves the
+        // rest as a right range, so the recursive walk nests once per run
+        String html1 = runs("old", 3_000, 20);
+        String html2 = runs("new", 3_000, 20);
+
+        String[] results = new String[2];
+        Throwable[] failures = new Throwable[2];
+        run(() -> results[0] = untrimmed(html1, html2), SmallStack, failures, 0);
+        run(() -> results[1] = ReferenceDiff.build(html1, html2), LargeStack, failures, 1);
+
+        assertNull(failures[0], "explicit stack walk failed on a small stack");
+        assertNull(failures[1], "reference failed");
+        assertEquals(results[1], results[0]);
+    }
+
+    @Test
+    void interleavedEditsOnLargePageMatchReference() throws InterruptedException {
+        // thousands of scattered edits over a long article
+        String html1 = RandomDocuments.article(new Random(1), 500_000);
+        String html2 = RandomDocuments.revise(new Random(2), html1, 5_000);
+
+        String[] results = new String[2];
+        Throwable[] failures = new Throwable[2];
+        run(() -> results[0] = untrimmed(html1, html2), SmallStack, failures, 0);
+        run(() -> results[1] = ReferenceDiff.build(html1, html2), LargeStack, failures, 1);
+
+        assertNull(failures[0], "explicit stack walk failed on a small stack");
+        assertNull(failures[1], "reference failed");
+        assertEquals(results[1], results[0]);
+    }
+
+    private static String untrimmed(String html1, String html2) {
+        CustomHtmlDiff diff = new CustomHtmlDiff(html1, html2);
+        diff.setTrimCommonEnds(false);
+        return diff.build();
+    }
+
+    private static void run(Runnable task, long stackSize, Throwable[] failures, int index) throws InterruptedException {
+        Thread worker = new Thread(null, () -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                failures[index] = t;
+            }
+        }, "find-matches-test", stackSize);
+        worker.start();
+        worker.join();
+    }
+
+    private static String runs(String separator, int count, int words) {
+        StringBuilder html = new StringBuilder();
+        int word = 0;
+        for (int run = 0; run < count; run++) {
+            html.append("<p>").append(separator).append(run).append("</p>");
+            for (int i = 0; i < words; i++) {
+                html.append('w').append(word++).append(' ');
+            }
+        }
+        return html.toString();
+    }
+}
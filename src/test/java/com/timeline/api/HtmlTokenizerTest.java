@@ -0,0 +1,82 @@
+package com.timeline.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// HtmlTokenizer's spans against the boundaries of the List<Character> state machine it replaced
+class HtmlTokenizerTest {
+    private static final String[] Golden = {
+            "",
+            "plain",
+            "<p>Hello, world!</p>",
+            "a  b\t\n c",
+            "&nbsp;&nbsp;",
+            " &nbsp; ",
+            "x &nbsp; &nbsp;y",
+            "a&nbsp;b &amp; c&lt;d&#39;e",
+            "&amp",
+            "&a b;",
+            "&#x;",
+            "&&;;",
+            "& ;",
+            "text&amp;<b>bold</b>",
+            "&nbsp;<p>",
+            "<p>unterminated <b",
+            "tail <",
+            "<",
+            "<<b>>",
+            "< p>",
+            "<>",
+            "<img src=\"a.png\">caption",
+            "<IMG src=b><img/>",
+            "<br/><br /><hr>",
+            "<strong>s</strong><span class='a'>t</span><em >u</em>",
+            "word@mail #tag _id x1 42",
+            "na\u00efve \u65e5\u672c caf\u00e9",
+            "(quoted) \"text\", 'more'.",
+            "a\u00a0b\u2003c",
+            "\n\n<p>\n</p>\n",
+    };
+
+    @Test
+    void goldenInputsMatchBaselineBoundaries() {
+        for (String html : Golden) {
+            assertEquals(BaselineTokenizer.tokenize(html), spans(new HtmlTokenizer().tokenize(html)), html);
+        }
+    }
+
+    @Test
+    void randomInputsMatchBaselineBoundaries() throws IOException {
+        Random random = new Random(2);
+        for (int i = 0; i < 5_000; i++) {
+            String html = i % 2 == 0 ? RandomDocuments.page(random, random.nextInt(80)) : noise(random, random.nextInt(60));
+            List<String> expected = BaselineTokenizer.tokenize(html);
+            assertEquals(expected, spans(new HtmlTokenizer().tokenize(html)), html);
+            assertEquals(expected, spans(new HtmlTokenizer().tokenize(new StringReader(html))), html);
+        }
+    }
+
+    // single characters the state machine switches on, so every transition shows up next to every other
+    private static String noise(Random random, int length) {
+        String alphabet = "ab1_#@ \t\n&;<>/=\"'.,\u00a0\u00e9";
+        StringBuilder html = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (random.nextInt(8) == 0) html.append(random.nextBoolean() ? "&nbsp;" : "<img src=x>");
+            else html.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return html.toString();
+    }
+
+    private static List<String> spans(TokenList tokens) {
+        List<String> result = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) result.add(tokens.get(i));
+        return result;
+    }
+}
@@ -0,0 +1,100 @@
+package com.timeline.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// after every edit the incremental diff renders what a full CustomHtmlDiff of the draft renders, including
+// edits inside tags, entities and whitespace and edits that bring back text of the published page
+class IncrementalHtmlDiffTest {
+    @Test
+    void randomEditsMatchFullBuild() {
+        Random random = new Random(24);
+        for (int i = 0; i < 1_500; i++) {
+            String html1 = RandomDocuments.page(random, random.nextInt(60));
+            String html2 = RandomDocuments.candidate(random, html1, 60);
+            boolean trimCommonEnds = random.nextBoolean();
+            IncrementalHtmlDiff diff = new IncrementalHtmlDiff(html1, html2, trimCommonEnds);
+            assertMatchesFullBuild(html1, diff, trimCommonEnds);
+
+            int edits = 1 + random.nextInt(30);
+            for (int j = 0; j < edits; j++) {
+                String draft = diff.getDraft();
+                int offset = draft.isEmpty() ? 0 : random.nextInt(draft.length() + 1);
+                int removed = random.nextInt(3) == 0 ? 0 : Math.min(draft.length() - offset, random.nextInt(random.nextBoolean() ? 3 : 20));
+                String inserted = random.nextInt(5) == 0 ? "" : snippet(random);
+                if (random.nextInt(6) == 0 && !html1.isEmpty()) {
+                    int from = random.nextInt(html1.length());
+                    inserted = html1.substring(from, Math.min(html1.length(), from + random.nextInt(40)));
+                }
+
+                diff.edit(offset, removed, inserted);
+                assertEquals(new StringBuilder(draft).replace(offset, offset + removed, inserted).toString(), diff.getDraft());
+                assertMatchesFullBuild(html1, diff, trimCommonEnds);
+            }
+        }
+    }
+
+    @Test
+    void keystrokesOnLargePageMatchFullBuild() {
+        keystrokesOnLargePage(false);
+        keystrokesOnLargePage(true);
+    }
+
+    private static void keystrokesOnLargePage(boolean trimCommonEnds) {
+        Random random = new Random(25);
+        String published = RandomDocuments.article(random, 20_000);
+        IncrementalHtmlDiff diff = new IncrementalHtmlDiff(published, RandomDocuments.revise(random, published, 20), trimCommonEnds);
+        int position = 0;
+        for (int i = 0; i < 200; i++) {
+            // a word typed at one place, then a jump somewhere else; every eighth key is a backspace
+            if (i % 20 == 0) position = Math.max(0, diff.getDraft().indexOf(' ', random.nextInt(diff.getDraft().length())));
+            if (i % 8 == 7 && position > 0) diff.edit(--position, 1, "");
+            else diff.edit(position++, 0, String.valueOf((char) ('a' + random.nextInt(26))));
+            if (i % 10 == 0) assertMatchesFullBuild(published, diff, trimCommonEnds);
+        }
+        assertMatchesFullBuild(published, diff, trimCommonEnds);
+    }
+
+    @Test
+    void dictionaryStaysBoundedOverManyEdits() {
+        // a new word typed and deleted again, over and over: every word stays interned until a rebuild
+        Random random = new Random(26);
+        String published = RandomDocuments.article(random, 2_000);
+        IncrementalHtmlDiff diff = new IncrementalHtmlDiff(published, RandomDocuments.revise(random, published, 5));
+        long initialBytes = diff.getDictionary().retainedBytes();
+        long maxBytes = 0;
+        for (int i = 0; i < 20_000; i++) {
+            int position = Math.max(0, diff.getDraft().indexOf(' ', random.nextInt(diff.getDraft().length())));
+            String word = " typed" + i;
+            diff.edit(position, 0, word);
+            diff.edit(position, word.length(), "");
+            maxBytes = Math.max(maxBytes, diff.getDictionary().retainedBytes());
+            if (i % 2_000 == 0) assertMatchesFullBuild(published, diff, false);
+        }
+        assertMatchesFullBuild(published, diff, false);
+        assertTrue(maxBytes < 8 * initialBytes, maxBytes + " dictionary bytes, " + initialBytes + " at the start");
+    }
+
+    private static void assertMatchesFullBuild(String html1, IncrementalHtmlDiff diff, boolean trimCommonEnds) {
+        CustomHtmlDiff full = new CustomHtmlDiff(html1, diff.getDraft());
+        full.setTrimCommonEnds(trimCommonEnds);
+        assertEquals(full.build(), diff.build(), html1 + "\n" + diff.getDraft());
+    }
+
+    private static String snippet(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return String.valueOf("abcxyz <>/&;".charAt(random.nextInt(12)));
+            case 1:
+                return RandomDocuments.piece(random);
+            case 2:
+                return "";
+            default:
+                return RandomDocuments.page(random, 1 + random.nextInt(4));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.timeline.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// every option combination spells out both token lists, the unlimited variants with the trace's edit
+// distance, and a limit only shows up in the script it was passed to
+class MyersScriptTest {
+    @Test
+    void everyVariantSpellsOutBothTokenLists() {
+        Random random = new Random(11);
+        for (int i = 0; i < 300; i++) {
+            String html1 = RandomDocuments.page(random, 1 + random.nextInt(60));
+            String html2 = RandomDocuments.candidate(random, html1, 60);
+            List<String> tokens1 = MyersHtmlDiff.tokenize(html1);
+            List<String> tokens2 = MyersHtmlDiff.tokenize(html2);
+            if (tokens1.isEmpty() || tokens2.isEmpty()) continue;
+
+            int distance = distance(new MyersScript(new MyersOptions()).run(tokens1, tokens2));
+            for (int variant = 0; variant < 8; variant++) {
+                MyersOptions options = new MyersOptions();
+                options.setLinearSpace((variant & 1) != 0);
+                options.setHistogram((variant & 2) != 0);
+                options.setBlockLevel((variant & 4) != 0);
+                MyersScript script = new MyersScript(options);
+                byte[] steps = script.run(tokens1, tokens2);
+
+                assertSpells(tokens1, tokens2, steps);
+                assertFalse(script.fellBack());
+                // histogram and block alignment trade minimality for anchors
+                if (!options.isHistogram() && !options.isBlockLevel()) assertEquals(distance, distance(steps));
+            }
+        }
+    }
+
+    @Test
+    void limitIsReportedPerScript() {
+        List<String> tokens1 = MyersHtmlDiff.tokenize(RandomDocuments.article(new Random(1), 2_000));
+        List<String> tokens2 = MyersHtmlDiff.tokenize(RandomDocuments.article(new Random(2), 2_000));
+
+        for (boolean linearSpace : new boolean[] {false, true}) {
+            MyersOptions limited = new MyersOptions();
+            limited.setLinearSpace(linearSpace);
+            limited.setMaxEditDistance(50);
+            MyersScript bounded = new MyersScript(limited);
+            assertSpells(tokens1, tokens2, bounded.run(tokens1, tokens2));
+            assertTrue(bounded.fellBack());
+
+            MyersOptions unlimited = new MyersOptions();
+            unlimited.setLinearSpace(linearSpace);
+            MyersScript exact = new MyersScript(unlimited);
+            assertSpells(tokens1, tokens2, exact.run(tokens1, tokens2));
+            assertFalse(exact.fellBack());
+        }
+    }
+
+    private static void assertSpells(List<String> tokens1, List<String> tokens2, byte[] steps) {
+        List<String> old = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int x = 0;
+        int y = 0;
+        for (byte step : steps) {
+            if (step == MyersDiff.EQUAL) {
+                assertEquals(tokens1.get(x), tokens2.get(y));
+                old.add(tokens1.get(x++));
+                current.add(tokens2.get(y++));
+            } else if (step == MyersDiff.DELETE) {
+                old.add(tokens1.get(x++));
+            } else {
+                current.add(tokens2.get(y++));
+            }
+        }
+        assertEquals(tokens1, old);
+        assertEquals(tokens2, current);
+    }
+
+    private static int distance(byte[] steps) {
+        int distance = 0;
+        for (byte step : steps) if (step != MyersDiff.EQUAL) distance++;
+        return distance;
+    }
+}
@@ -0,0 +1,54 @@
+package com.timeline.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import com.timeline.api.CustomHtmlDiff.MatchStrategy;
+
+// every candidate diffed against the prepared base renders what a plain CustomHtmlDiff of the pair renders,
+// one at a time and through diffAll on several threads
+class OneToManyHtmlDiffTest {
+    @Test
+    void candidatesMatchPairwiseDiffs() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Random random = new Random(25);
+            for (int i = 0; i < 1_000; i++) {
+                String base = i % 100 == 0 ? RandomDocuments.article(random, 4_000) : RandomDocuments.page(random, random.nextInt(60));
+                List<String> candidates = new ArrayList<>();
+                for (int j = 0; j < 6; j++) candidates.add(RandomDocuments.candidate(random, base, 60));
+                boolean trimCommonEnds = random.nextBoolean();
+                MatchStrategy strategy = random.nextInt(4) == 0 ? MatchStrategy.SUFFIX_AUTOMATON : MatchStrategy.BLOCK_INDEX;
+
+                OneToManyHtmlDiff diff = new OneToManyHtmlDiff(base);
+                diff.setTrimCommonEnds(trimCommonEnds);
+                diff.setMatchStrategy(strategy);
+                diff.setExecutor(executor);
+                List<String> all = diff.diffAll(candidates);
+
+                for (int j = 0; j < candidates.size(); j++) {
+                    CustomHtmlDiff pairwise = new CustomHtmlDiff(base, candidates.get(j));
+                    pairwise.setTrimCommonEnds(trimCommonEnds);
+                    pairwise.setMatchStrategy(strategy);
+                    String expected = pairwise.build();
+
+                    assertEquals(expected, all.get(j), base + "\n" + candidates.get(j));
+                    assertEquals(expected, diff.diff(candidates.get(j)));
+                    StringBuilder out = new StringBuilder();
+                    diff.diff(candidates.get(j), out);
+                    assertEquals(expected, out.toString());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.timeline.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+// match discovery split over a pool gives the sequential result, whichever thread searches which range
+class ParallelMatchTest {
+    @Test
+    void poolMatchesSequentialBuild() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Random random = new Random(9);
+            for (int i = 0; i < 200; i++) {
+                String html1 = i % 10 == 0 ? RandomDocuments.article(random, 4_000) : RandomDocuments.page(random, random.nextInt(200));
+                String html2 = RandomDocuments.revise(random, html1, random.nextInt(40));
+
+                CustomHtmlDiff parallel = new CustomHtmlDiff(html1, html2);
+                parallel.setMatchPool(pool);
+                parallel.setParallelMatchThreshold(16);
+                assertEquals(new CustomHtmlDiff(html1, html2).build(), parallel.build(), html1 + "\n" + html2);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.timeline.api;
+
+import java.util.Random;
+
+// random html for the equivalence tests: words, punctuation, whitespace, entities, tags with and without
+// attributes, broken tags and a page cut off inside a tag
+final class RandomDocuments {
+    private static final String[] Pieces = {
+            "the", "a", "of", "timeline", "Hello", "world", "test", "diff", "x1", "_id", "#tag", "@me", "42",
+            ",", ".", "!", "?", "-", "'", "\"", "(", ")", "\u00e9", "na\u00efve", "\u65e5\u672c",
+            " ", " ", " ", "  ", "\n", "\t", "\u00a0", "\u2003", " \n ",
+            "&amp;", "&nbsp;", "&#39;", "&lt;", "&x", "&", "&&", "&nbsp;&nbsp;", " &nbsp; ", "&a b;", "&#x;",
+            "<p>", "</p>", "<p class=\"x\">", "<P>", "<div>", "</div>", "<li>", "</li>", "<h2>", "</h2>",
+            "<strong>", "</strong>", "<span>", "<span class='a'>", "</span>", "<b>", "</b>", "<em >", "</em>",
+            "<i>", "</i>", "<br/>", "<br>", "<br />", "<img src=\"a.png\">", "<img src=\"b.png\" alt=\"x\">", "<IMG src=b>",
+            "<>", "< p>", "<<b>", "<a href='u'>", "</a>", "<tr>", "</tr>", "<td>", "</td>", "<sub>", "</sub>", "<hr/>"
+    };
+    // the pieces up to here are plain text
+    private static final int TextPieces = 25;
+
+    private RandomDocuments() {
+    }
+
+    static String page(Random random, int pieces) {
+        StringBuilder html = new StringBuilder();
+        boolean paragraphs = random.nextBoolean();
+        for (int i = 0; i < pieces; i++) {
+            if (paragraphs && random.nextInt(8) == 0) {
+                html.append("<p>");
+                int words = 1 + random.nextInt(8);
+                for (int j = 0; j < words; j++) html.append(Pieces[random.nextInt(TextPieces)]).append(random.nextInt(3) == 0 ? "" : " ");
+                html.append("</p>");
+            } else {
+                html.append(piece(random));
+            }
+        }
+        if (random.nextInt(10) == 0) html.append("<p class=");
+        return html.toString();
+    }
+
+    static String piece(Random random) {
+        return Pieces[random.nextInt(Pieces.length)];
+    }
+
+    // roughly tokens / 20 paragraphs of words and spaces, no two paragraphs alike
+    static String article(Random random, int tokens) {
+        StringBuilder html = new StringBuilder();
+        for (int count = 0; count < tokens; count += 22) {
+            html.append("<p>");
+            for (int i = 0; i < 10; i++) html.append(Pieces[random.nextInt(10)]).append(random.nextInt(100)).append(' ');
+            html.append("</p>");
+        }
+        return html.toString();
+    }
+
+    // a few random replacements of short stretches, so most of the page survives
+    static String revise(Random random, String html) {
+        return revise(random, html, random.nextInt(6));
+    }
+
+    static String revise(Random random, String html, int edits) {
+        StringBuilder result = new StringBuilder(html);
+        for (int i = 0; i < edits; i++) {
+            int position = result.length() == 0 ? 0 : random.nextInt(result.length() + 1);
+            int end = Math.min(result.length(), position + random.nextInt(20));
+            result.replace(position, end, page(random, random.nextInt(3)));
+        }
+        return result.toString();
+    }
+
+    // an unrelated page, the page itself or a revision of it
+    static String candidate(Random random, String html, int pieces) {
+        switch (random.nextInt(5)) {
+            case 0:
+                return html;
+            case 1:
+                return page(random, random.nextInt(pieces));
+            default:
+                return revise(random, html);
+        }
+    }
+}
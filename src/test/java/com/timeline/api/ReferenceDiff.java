@@ -0,0 +1,70 @@
+package com.timeline.api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.timeline.api.CustomHtmlDiff.Match;
+
+// CustomHtmlDiff without common end trimming, written the plain recursive way: with the default options the
+// match of a range is its longest common token run, ties going to the earliest end in old and then in new, and
+// removeOrphans keeps every match. deep match trees need a thread with a large stack
+final class ReferenceDiff {
+    private final TokenList tokens1;
+    private final TokenList tokens2;
+    private final int[] ids1;
+    private final int[] ids2;
+    private final List<Match> matches = new ArrayList<>();
+
+    private ReferenceDiff(String html1, String html2) {
+        TokenDictionary dictionary = new TokenDictionary();
+        tokens1 = new HtmlTokenizer().tokenize(html1);
+        tokens2 = new HtmlTokenizer().tokenize(html2);
+        ids1 = intern(dictionary, tokens1);
+        ids2 = intern(dictionary, tokens2);
+    }
+
+    static String build(String html1, String html2) {
+        if (html1.equals(html2)) return html2;
+
+        ReferenceDiff diff = new ReferenceDiff(html1, html2);
+        diff.findMatches(0, diff.ids1.length, 0, diff.ids2.length);
+        diff.matches.add(new Match(diff.ids1.length, diff.ids2.length, 0));
+        StringBuilder diffHtml = new StringBuilder();
+        try {
+            CustomHtmlDiff.render(diff.tokens1, diff.tokens2, CustomHtmlDiff.toOperations(diff.matches), diffHtml);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return diffHtml.toString();
+    }
+
+    private static int[] intern(TokenDictionary dictionary, TokenList tokens) {
+        int[] ids = new int[tokens.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = dictionary.intern(tokens.source(), tokens.keyStart(i), tokens.keyEnd(i), tokens.keySuffix(i));
+        }
+        return ids;
+    }
+
+    private void findMatches(int startInOld, int endInOld, int startInNew, int endInNew) {
+        Match match = longestCommonRun(startInOld, endInOld, startInNew, endInNew);
+        if (match == null) return;
+
+        if (startInOld < match.getStartInOld() && startInNew < match.getStartInNew()) {
+            findMatches(startInOld, match.getStartInOld(), startInNew, match.getStartInNew());
+        }
+        matches.add(match);
+        if (match.getEndInOld() < endInOld && match.getEndInNew() < endInNew) {
+            findMatches(match.getEndInOld(), endInOld, match.getEndInNew(), endInNew);
+        }
+    }
+
+    private Match longestCommonRun(int startInOld, int endInOld, int startInNew, int endInNew) {
+        if (startInOld == endInOld || startInNew == endInNew) return null;
+        SuffixAutomaton automaton = new SuffixAutomaton();
+        automaton.build(ids2, startInNew, endInNew);
+        return automaton.longestCommonRun(ids1, startInOld, endInOld);
+    }
+}
@@ -0,0 +1,144 @@
+package com.timeline.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.timeline.api.CustomHtmlDiff.Operation;
+
+// the rendered html of a few known revisions, build(Appendable) writing exactly what build() returns, and the
+// rendering work staying linear in the tokens however many edits there are
+class RenderingTest {
+    @Test
+    void rendersKnownRevisions() {
+        assertEquals("<p>Hello, <del class='diffmod'>world</del><ins class='diffmod'>timeline</ins>!</p><p>This is a test<ins class='diffins'>&nbsp;of the diff tool</ins>.</p>",
+                new CustomHtmlDiff("<p>Hello, world!</p><p>This is a test.</p>", "<p>Hello, timeline!</p><p>This is a test of the diff tool.</p>").build());
+        assertEquals("<p>one <strong><ins class='mod'>two</ins></strong> three</p>",
+                new CustomHtmlDiff("<p>one two three</p>", "<p>one <strong>two</strong> three</p>").build());
+        assertEquals("<ul><li>a</li><li><ins class='diffins'>c</ins></li><li>b</li></ul>",
+                new CustomHtmlDiff("<ul><li>a</li><li>b</li></ul>", "<ul><li>a</li><li>c</li><li>b</li></ul>").build());
+        assertEquals("<p>caf&eacute; &amp; <del class='diffmod'>bar</del><ins class='diffmod'>baz</ins></p><del class='diffmod'><img src=\"a.png\"></del><ins class='diffmod'><img src=\"b.png\"></ins>",
+                new CustomHtmlDiff("<p>caf&eacute; &amp; bar</p><img src=\"a.png\">", "<p>caf&eacute; &amp; baz</p><img src=\"b.png\">").build());
+        assertEquals("<p class=\"y\">same words<ins class='diffins'>&nbsp;here</ins></p>",
+                new CustomHtmlDiff("<p class=\"x\">same words</p>", "<p class=\"y\">same words here</p>").build());
+    }
+
+    @Test
+    void appendableOutputMatchesBuild(@TempDir Path directory) throws IOException {
+        Random random = new Random(18);
+        for (int i = 0; i < 500; i++) {
+            String html1 = i % 50 == 0 ? RandomDocuments.article(random, 5_000) : RandomDocuments.page(random, random.nextInt(100));
+            String html2 = RandomDocuments.candidate(random, html1, 100);
+            String expected = new CustomHtmlDiff(html1, html2).build();
+
+            StringWriter writer = new StringWriter();
+            new CustomHtmlDiff(html1, html2).build(writer);
+            assertEquals(expected, writer.toString(), html1 + "\n" + html2);
+
+            CharAppendable chars = new CharAppendable();
+            new CustomHtmlDiff(html1, html2).build(chars);
+            assertEquals(expected, chars.toString());
+
+            Path path1 = Files.writeString(directory.resolve("old.html"), html1, StandardCharsets.UTF_8);
+            Path path2 = Files.writeString(directory.resolve("new.html"), html2, StandardCharsets.UTF_8);
+            StringBuilder fromFiles = new StringBuilder();
+            new CustomHtmlDiff(path1, path2).build(fromFiles);
+            assertEquals(expected, fromFiles.toString());
+        }
+    }
+
+    @Test
+    void renderReadsStayLinearInEdits() throws IOException {
+        // the same article with ever more scattered edits: every token read while rendering reads its chars from
+        // the page text, so chars read per char of both pages stays flat unless some step rescans
+        String published = RandomDocuments.article(new Random(3), 100_000);
+        double fewest = 0;
+        for (int edits : new int[] {10, 100, 1_000, 5_000}) {
+            String revised = RandomDocuments.revise(new Random(edits), published, edits);
+            CountingText text1 = new CountingText(published);
+            CountingText text2 = new CountingText(revised);
+            TokenList tokens1 = new HtmlTokenizer().tokenize(text1);
+            TokenList tokens2 = new HtmlTokenizer().tokenize(text2);
+            List<Operation> operations = new CustomHtmlDiff(published, revised).operations();
+
+            text1.reads = 0;
+            text2.reads = 0;
+            StringBuilder out = new StringBuilder();
+            CustomHtmlDiff.render(tokens1, tokens2, operations, out);
+            assertEquals(new CustomHtmlDiff(published, revised).build(), out.toString());
+
+            double perChar = (double) (text1.reads + text2.reads) / (published.length() + revised.length());
+            if (fewest == 0) fewest = perChar;
+            assertTrue(perChar < 4 * fewest, edits + " edits read " + perChar + " chars per char, " + fewest + " with 10");
+        }
+    }
+
+    // counts the chars read through it
+    private static class CountingText implements CharSequence {
+        private final String text;
+        private long reads;
+
+        CountingText(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            reads++;
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            reads += end - start;
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    // takes every char on its own, so no rendering step can lean on a bulk append
+    private static class CharAppendable implements Appendable {
+        private final StringBuilder chars = new StringBuilder();
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            for (int i = start; i < end; i++) append(csq.charAt(i));
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            chars.append(c);
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return chars.toString();
+        }
+    }
+}
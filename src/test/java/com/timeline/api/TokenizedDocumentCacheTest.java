@@ -0,0 +1,83 @@
+package com.timeline.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import com.timeline.api.CustomHtmlDiff.MatchStrategy;
+
+// diffs of cached handles against String diffs, and the byte bound with the dictionaries counted in
+class TokenizedDocumentCacheTest {
+    @Test
+    void handlesDiffLikeStrings() {
+        TokenizedDocumentCache cache = new TokenizedDocumentCache(64L << 20);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Random random = new Random(22);
+            String html1 = RandomDocuments.page(random, 100);
+            for (int i = 0; i < 400; i++) {
+                String html2 = RandomDocuments.candidate(random, html1, 100);
+                for (MatchStrategy strategy : MatchStrategy.values()) {
+                    for (int variant = 0; variant < 3; variant++) {
+                        CustomHtmlDiff expected = new CustomHtmlDiff(html1, html2);
+                        CustomHtmlDiff actual = new CustomHtmlDiff(cache.get(html1), cache.get(html2));
+                        configure(expected, strategy, variant, pool);
+                        configure(actual, strategy, variant, pool);
+                        assertEquals(expected.build(), actual.build(), html1 + "\n" + html2);
+                    }
+                }
+                html1 = html2;
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void dictionaryCountsTowardTheBound() {
+        long maxBytes = 256 * 1024;
+        TokenizedDocumentCache cache = new TokenizedDocumentCache(maxBytes);
+        Random random = new Random(23);
+        String html = null;
+        for (int i = 0; i < 300; i++) {
+            // every page brings words no page before it had, so the dictionary keeps growing
+            html = uniqueWords(random, i, 300);
+            cache.get(html);
+            assertTrue(cache.getRetainedBytes() <= maxBytes, cache.toString());
+        }
+        assertTrue(cache.getEvictions() > 0);
+
+        // the latest handle is still cached and charged together with the dictionary it was interned by
+        TokenizedDocument last = cache.get(html);
+        assertEquals(300, cache.getMisses());
+        assertTrue(cache.getRetainedBytes() >= last.retainedBytes() + last.getDictionary().retainedBytes(), cache.toString());
+    }
+
+    @Test
+    void documentBytesFollowArrayCapacity() {
+        // the tokenizer grows its arrays by doubling, the handle has to be charged for the spare slots too
+        TokenizedDocument document = TokenizedDocument.of(uniqueWords(new Random(24), 0, 1_000));
+        TokenList tokens = document.getTokens();
+        assertTrue(tokens.retainedBytes() >= 26L * tokens.size());
+        assertTrue(document.retainedBytes() >= 2L * tokens.source().length() + tokens.retainedBytes() + 4L * tokens.size());
+    }
+
+    private static void configure(CustomHtmlDiff diff, MatchStrategy strategy, int variant, ForkJoinPool pool) {
+        diff.setMatchStrategy(strategy);
+        if (variant == 1) diff.setTrimCommonEnds(true);
+        if (variant == 2) {
+            diff.setMatchPool(pool);
+            diff.setParallelMatchThreshold(16);
+        }
+    }
+
+    private static String uniqueWords(Random random, int page, int words) {
+        StringBuilder html = new StringBuilder("<p>");
+        for (int i = 0; i < words; i++) html.append('p').append(page).append('w').append(i).append(random.nextInt(10)).append(' ');
+        return html.append("</p>").toString();
+    }
+}